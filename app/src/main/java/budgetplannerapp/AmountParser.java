@@ -0,0 +1,286 @@
+package budgetplannerapp;
+
+import java.nio.charset.StandardCharsets;
+
+// Amount Parser
+// Reads money amounts the way people type them, in any locale:
+//   [sign] [$] [sign] digits [, thousands groups] [. decimals] [e exponent]
+// with surrounding whitespace ignored, e.g. "1200", "-$1,234.50", "$-0.99", ".5".
+// Works on byte[] and char[] ranges without building Strings. Amounts with up to
+// 15 significant digits (all real budgets) are converted exactly with one division;
+// longer ones and exponents go through Double.parseDouble, so results always
+// match it. Anything else is rejected with the position of the offending character.
+final class AmountParser {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long[] LONG_POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+        10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+        100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L
+    };
+    private static final long EXACT_LIMIT = 1L << 53;
+    private static final int MAX_SCALE = LONG_POWERS_OF_TEN.length - 1;
+
+    // scan() packs sign, decimal places and digits into one long; SLOW means
+    // "valid, but too long or with an exponent for the fast path"
+    private static final long SLOW = Long.MIN_VALUE;
+    private static final long NEGATIVE_BIT = 1L << 62;
+    private static final int SCALE_SHIFT = 56;
+    private static final long MANTISSA_MASK = (1L << SCALE_SHIFT) - 1;
+
+    private AmountParser() {}
+
+    public static double parse(CharSequence text) {
+        int length = text.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = latin1(text.charAt(i));
+        }
+        return parse(bytes, 0, length);
+    }
+
+    public static double parse(char[] chars, int from, int to) {
+        return parse(latin1(chars, from, to), 0, to - from);
+    }
+
+    public static double parse(byte[] bytes, int from, int to) {
+        long packed = scan(bytes, from, to);
+        if (packed == SLOW) {
+            return Double.parseDouble(cleaned(bytes, from, to));
+        }
+        long mantissa = packed & MANTISSA_MASK;
+        int scale = (int) (packed >>> SCALE_SHIFT) & 0x3F;
+        if (mantissa >= EXACT_LIMIT || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(cleaned(bytes, from, to));
+        }
+        // Both operands are exact, so the one rounding matches Double.parseDouble
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return (packed & NEGATIVE_BIT) != 0 ? -value : value;
+    }
+
+    // Whole cents, with further decimal places rounded half away from zero like
+    // Money.toCents, but on the digits as written ("1.005" is 1.01). Exponents and
+    // amounts too long for the exact path go through Double.parseDouble and Money.toCents.
+    public static long parseCents(CharSequence text) {
+        int length = text.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = latin1(text.charAt(i));
+        }
+        return parseCents(bytes, 0, length);
+    }
+
+    public static long parseCents(char[] chars, int from, int to) {
+        return parseCents(latin1(chars, from, to), 0, to - from);
+    }
+
+    public static long parseCents(byte[] bytes, int from, int to) {
+        long packed = scan(bytes, from, to);
+        if (packed == SLOW) {
+            try {
+                return Money.toCents(Double.parseDouble(cleaned(bytes, from, to)));
+            } catch (ArithmeticException e) {
+                throw new AmountFormatException("Amount is too large", bytes, from, to, 0);
+            }
+        }
+        long mantissa = packed & MANTISSA_MASK;
+        int scale = (int) (packed >>> SCALE_SHIFT) & 0x3F;
+        long cents;
+        if (scale <= 2) {
+            long factor = LONG_POWERS_OF_TEN[2 - scale];
+            if (mantissa > Long.MAX_VALUE / factor) {
+                throw new AmountFormatException("Amount is too large", bytes, from, to, 0);
+            }
+            cents = mantissa * factor;
+        } else {
+            long divisor = LONG_POWERS_OF_TEN[scale - 2];
+            cents = mantissa / divisor;
+            if (mantissa % divisor >= divisor / 2) {
+                cents++; // the sign is applied afterwards, so this rounds away from zero
+            }
+        }
+        return (packed & NEGATIVE_BIT) != 0 ? -cents : cents;
+    }
+
+    // Validates the whole range and returns the packed value, SLOW, or throws
+    private static long scan(byte[] bytes, int from, int to) {
+        long simple = scanSimple(bytes, from, to);
+        return simple >= 0 ? simple : scanFull(bytes, from, to);
+    }
+
+    // The common case, "[-]digits[.digits]" of at most 15 digits, in one tight loop;
+    // -1 sends everything else (and every error) through scanFull
+    private static long scanSimple(byte[] bytes, int from, int to) {
+        int p = from;
+        long negative = 0;
+        if (p < to && bytes[p] == '-') {
+            negative = NEGATIVE_BIT;
+            p++;
+        }
+        int digitsStart = p;
+        long mantissa = 0;
+        int point = -1;
+        for (; p < to; p++) {
+            int digit = bytes[p] - '0';
+            if (digit >= 0 && digit <= 9) {
+                mantissa = mantissa * 10 + digit;
+            } else if (bytes[p] == '.' && point < 0) {
+                point = p;
+            } else {
+                return -1;
+            }
+        }
+        int digits = p - digitsStart - (point < 0 ? 0 : 1);
+        if (digits == 0 || digits > 15) {
+            return -1;
+        }
+        long scale = point < 0 ? 0 : to - point - 1;
+        return negative | (scale << SCALE_SHIFT) | mantissa;
+    }
+
+    private static long scanFull(byte[] bytes, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') start++;
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') end--;
+        if (start == end) {
+            throw new AmountFormatException("Empty amount", bytes, from, to, start - from);
+        }
+
+        int p = start;
+        boolean negative = false;
+        boolean signed = false;
+        if (bytes[p] == '-' || bytes[p] == '+') {
+            negative = bytes[p] == '-';
+            signed = true;
+            p++;
+        }
+        if (p < end && bytes[p] == '$') {
+            p++;
+            if (!signed && p < end && (bytes[p] == '-' || bytes[p] == '+')) {
+                negative = bytes[p] == '-';
+                p++;
+            }
+        }
+
+        long mantissa = 0;
+        boolean overflow = false;
+        int digits = 0;
+        int scale = 0;
+        int groupDigits = -1; // digits since the last thousands separator, -1 before any
+        int integerDigits = 0;
+        boolean seenPoint = false;
+        boolean exponent = false;
+        for (; p < end; p++) {
+            int c = bytes[p];
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa != 0 || c != '0') {
+                    if (mantissa < MANTISSA_MASK / 10) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    } else {
+                        overflow = true;
+                    }
+                }
+                if (seenPoint) {
+                    if (++scale > MAX_SCALE) {
+                        overflow = true;
+                    }
+                } else {
+                    integerDigits++;
+                    if (groupDigits >= 0 && ++groupDigits > 3) {
+                        throw new AmountFormatException("Thousands groups need three digits", bytes, from, to, p - from);
+                    }
+                }
+            } else if (c == ',' && !seenPoint) {
+                boolean firstGroup = groupDigits < 0;
+                if (firstGroup ? integerDigits == 0 || integerDigits > 3 : groupDigits != 3) {
+                    throw new AmountFormatException("Misplaced thousands separator", bytes, from, to, p - from);
+                }
+                groupDigits = 0;
+            } else if (c == '.' && !seenPoint) {
+                if (groupDigits >= 0 && groupDigits != 3) {
+                    throw new AmountFormatException("Thousands groups need three digits", bytes, from, to, p - from);
+                }
+                seenPoint = true;
+            } else if ((c == 'e' || c == 'E') && digits > 0) {
+                if (!seenPoint && groupDigits >= 0 && groupDigits != 3) {
+                    throw new AmountFormatException("Thousands groups need three digits", bytes, from, to, p - from);
+                }
+                scanExponent(bytes, from, to, p + 1, end);
+                exponent = true;
+                break;
+            } else {
+                throw new AmountFormatException("Unexpected '" + (char) (c & 0xFF) + "'", bytes, from, to, p - from);
+            }
+        }
+        if (digits == 0) {
+            throw new AmountFormatException("No digits", bytes, from, to, end - from);
+        }
+        if (!seenPoint && !exponent && groupDigits >= 0 && groupDigits != 3) {
+            throw new AmountFormatException("Thousands groups need three digits", bytes, from, to, end - from);
+        }
+        if (overflow || exponent) {
+            return SLOW;
+        }
+        return (negative ? NEGATIVE_BIT : 0) | ((long) scale << SCALE_SHIFT) | mantissa;
+    }
+
+    private static void scanExponent(byte[] bytes, int from, int to, int p, int end) {
+        if (p < end && (bytes[p] == '-' || bytes[p] == '+')) {
+            p++;
+        }
+        if (p == end) {
+            throw new AmountFormatException("Missing exponent", bytes, from, to, p - from);
+        }
+        for (; p < end; p++) {
+            if (bytes[p] < '0' || bytes[p] > '9') {
+                throw new AmountFormatException("Unexpected '" + (char) (bytes[p] & 0xFF) + "'", bytes, from, to, p - from);
+            }
+        }
+    }
+
+    // The already validated amount without '$', separators and whitespace, for Double.parseDouble
+    private static String cleaned(byte[] bytes, int from, int to) {
+        StringBuilder text = new StringBuilder(to - from);
+        for (int p = from; p < to; p++) {
+            int c = bytes[p] & 0xFF;
+            if (c > ' ' && c != '$' && c != ',') {
+                text.append((char) c);
+            }
+        }
+        return text.toString();
+    }
+
+    // Amounts are ASCII, so anything wider becomes a byte that scan() rejects
+    private static byte latin1(char c) {
+        return c < 0x80 ? (byte) c : (byte) '?';
+    }
+
+    private static byte[] latin1(char[] chars, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = latin1(chars[i]);
+        }
+        return bytes;
+    }
+
+    // A NumberFormatException that also says where in the input the problem is
+    static class AmountFormatException extends NumberFormatException {
+        private final String input;
+        private final int position;
+
+        AmountFormatException(String problem, byte[] bytes, int from, int to, int position) {
+            super(problem + " at position " + position + " in \"" + new String(bytes, from, to - from, StandardCharsets.ISO_8859_1) + "\"");
+            this.input = new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+            this.position = position;
+        }
+
+        public String getInput() { return input; }
+
+        // Offset from the start of the parsed range
+        public int getPosition() { return position; }
+    }
+}
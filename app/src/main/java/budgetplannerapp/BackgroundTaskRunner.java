@@ -0,0 +1,211 @@
+package budgetplannerapp;
+
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+// Background Task Runner
+// Runs slow work (file and database I/O) off the event dispatch thread on a small
+// dedicated pool. Progress, completion and failure are delivered back on the EDT.
+// Tasks submitted with a key run at most once at a time, so a second click on
+// Import while an import is running is refused instead of starting another one.
+class BackgroundTaskRunner {
+    public interface Work<T> {
+        T run(BackgroundTask task) throws Exception;
+    }
+
+    // Called on the EDT whenever a task starts, reports progress or finishes
+    public interface Listener {
+        void tasksChanged(List<BackgroundTask> running);
+    }
+
+    private static final int WORKER_THREADS = 4;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, BackgroundTask> keyed = new ConcurrentHashMap<>();
+    private final Set<BackgroundTask> running = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean notifyPending = new AtomicBoolean();
+
+    public BackgroundTaskRunner() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "budget-task-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isRunning(String key) {
+        return key != null && keyed.containsKey(key);
+    }
+
+    // Returns null when a task with the same key is still running or the pool is saturated
+    public <T> BackgroundTask submit(String key, String title, Work<T> work,
+                                     Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+        BackgroundTask task = new BackgroundTask(key, title);
+        if (key != null && keyed.putIfAbsent(key, task) != null) {
+            return null;
+        }
+        running.add(task);
+        try {
+            executor.execute(() -> execute(task, work, onSuccess, onFailure));
+        } catch (RejectedExecutionException e) {
+            finish(task);
+            return null;
+        }
+        notifyListeners();
+        return task;
+    }
+
+    private <T> void execute(BackgroundTask task, Work<T> work,
+                             Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+        T result = null;
+        Throwable failure = null;
+        task.attach(Thread.currentThread());
+        try {
+            task.checkCancelled();
+            result = work.run(task);
+            if (task.isCancelled()) {
+                failure = new CancellationException(task.getTitle() + " cancelled");
+            }
+        } catch (Throwable t) {
+            failure = task.isCancelled() && !(t instanceof CancellationException)
+                ? new CancellationException(task.getTitle() + " cancelled") : t;
+        } finally {
+            task.detach();
+            finish(task);
+        }
+
+        T value = result;
+        Throwable error = failure;
+        SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                if (onSuccess != null) onSuccess.accept(value);
+            } else if (onFailure != null) {
+                onFailure.accept(error);
+            } else {
+                error.printStackTrace();
+            }
+        });
+    }
+
+    private void finish(BackgroundTask task) {
+        running.remove(task);
+        if (task.getKey() != null) {
+            keyed.remove(task.getKey(), task);
+        }
+        notifyListeners();
+    }
+
+    // Coalesces bursts of progress updates into one EDT callback
+    private void notifyListeners() {
+        if (notifyPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                notifyPending.set(false);
+                List<BackgroundTask> snapshot = new ArrayList<>(running);
+                snapshot.sort(Comparator.comparingLong(BackgroundTask::getStartedAt));
+                for (Listener listener : listeners) {
+                    listener.tasksChanged(snapshot);
+                }
+            });
+        }
+    }
+
+    public void shutdown() {
+        for (BackgroundTask task : running) {
+            task.cancel();
+        }
+        executor.shutdown();
+    }
+
+    // Handle for a submitted task; the work uses it to report progress and check for cancel
+    public class BackgroundTask {
+        private final String key;
+        private final String title;
+        private final long startedAt = System.nanoTime();
+        private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+        private Thread worker;
+        private volatile boolean cancelled = false;
+        private volatile int progress = -1;
+        private volatile String note = "";
+
+        BackgroundTask(String key, String title) {
+            this.key = key;
+            this.title = title;
+        }
+
+        public String getKey() { return key; }
+        public String getTitle() { return title; }
+        public long getStartedAt() { return startedAt; }
+        public String getNote() { return note; }
+        public boolean isCancelled() { return cancelled; }
+
+        // -1 while the amount of work is unknown
+        public int getProgress() { return progress; }
+
+        public void setProgress(int percent) {
+            int clamped = Math.max(0, Math.min(100, percent));
+            if (clamped != progress) {
+                progress = clamped;
+                notifyListeners();
+            }
+        }
+
+        public void setNote(String note) {
+            this.note = note;
+            notifyListeners();
+        }
+
+        // Runs when the task is cancelled, e.g. to stop an importer mid-file
+        public void onCancel(Runnable hook) {
+            cancelHooks.add(hook);
+            if (cancelled) {
+                hook.run();
+            }
+        }
+
+        public void checkCancelled() {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException(title + " cancelled");
+            }
+        }
+
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            for (Runnable hook : cancelHooks) {
+                hook.run();
+            }
+            synchronized (this) {
+                if (worker != null) {
+                    worker.interrupt();
+                }
+            }
+            notifyListeners();
+        }
+
+        synchronized void attach(Thread thread) {
+            worker = thread;
+        }
+
+        // Clears any interrupt meant for this task so it cannot leak into the next one
+        synchronized void detach() {
+            worker = null;
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package budgetplannerapp;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Budget Aggregates
+// Running statistics per category for the whole history, each month and each
+// year. Single saves fold in one row at a time; bulk imports are summarised in
+// parallel and merged, so the dashboard reads totals without scanning records.
+// Sums, minimums and maximums are exact cents; only mean and variance are doubles.
+// Month and year rollups sit in int-keyed tables, and the rollups of the last month
+// seen are kept at hand, so a row in date order costs no lookup at all.
+class BudgetAggregates {
+    // The six store columns followed by the two derived values
+    public static final int TOTAL_EXPENSES = BudgetRecordStore.AMOUNT_COLUMNS;
+    public static final int SAVINGS = BudgetRecordStore.AMOUNT_COLUMNS + 1;
+    public static final int CATEGORIES = BudgetRecordStore.AMOUNT_COLUMNS + 2;
+
+    private static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+    private final Rollup overall = new Rollup();
+    private final RollupTable months = new RollupTable();
+    private final RollupTable years = new RollupTable();
+
+    // Last epoch day seen and its rollups, since rows tend to arrive in date order
+    private int cachedEpochDay = BudgetRecordStore.IRREGULAR_DATE;
+    private int cachedMonthKey;
+    private Rollup cachedMonth;
+    private Rollup cachedYear;
+    private final long[] values = new long[CATEGORIES];
+
+    public void add(BudgetRecordStore store, int row) {
+        for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+            values[column] = store.getCents(column, row);
+        }
+        values[TOTAL_EXPENSES] = store.getTotalExpensesCents(row);
+        values[SAVINGS] = store.getSavingsCents(row);
+
+        overall.add(values);
+        int epochDay = store.getEpochDay(row);
+        if (epochDay == BudgetRecordStore.IRREGULAR_DATE) {
+            return; // no month or year to file it under
+        }
+        if (epochDay != cachedEpochDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int monthKey = monthKey(date.getYear(), date.getMonthValue());
+            if (cachedMonth == null || monthKey != cachedMonthKey) {
+                if (cachedYear == null || yearOf(monthKey) != yearOf(cachedMonthKey)) {
+                    cachedYear = years.getOrCreate(yearOf(monthKey));
+                }
+                cachedMonth = months.getOrCreate(monthKey);
+                cachedMonthKey = monthKey;
+            }
+            cachedEpochDay = epochDay;
+        }
+        cachedMonth.add(values);
+        cachedYear.add(values);
+    }
+
+    public void merge(BudgetAggregates other) {
+        overall.merge(other.overall);
+        months.merge(other.months);
+        years.merge(other.years);
+    }
+
+    public void clear() {
+        overall.clear();
+        months.clear();
+        years.clear();
+        cachedEpochDay = BudgetRecordStore.IRREGULAR_DATE;
+        cachedMonth = null;
+        cachedYear = null;
+    }
+
+    public void rebuild(BudgetRecordStore store) {
+        BudgetAggregates rebuilt = compute(store, 0, store.size());
+        clear();
+        merge(rebuilt);
+    }
+
+    // Summarises rows [from, to) on a fork-join pool, the common one by default
+    public static BudgetAggregates compute(BudgetRecordStore store, int from, int to) {
+        return compute(ForkJoinPool.commonPool(), store, from, to);
+    }
+
+    public static BudgetAggregates compute(ForkJoinPool pool, BudgetRecordStore store, int from, int to) {
+        return pool.invoke(new ComputeTask(store, from, to));
+    }
+
+    public Rollup getOverall() {
+        return overall;
+    }
+
+    public Rollup getMonth(int year, int month) {
+        return months.get(monthKey(year, month));
+    }
+
+    public Rollup getYear(int year) {
+        return years.get(year);
+    }
+
+    public SortedSet<Integer> getMonthKeys() {
+        return months.keys();
+    }
+
+    public SortedSet<Integer> getYears() {
+        return years.keys();
+    }
+
+    public static int monthKey(int year, int month) {
+        return year * 12 + (month - 1);
+    }
+
+    public static int yearOf(int monthKey) {
+        return Math.floorDiv(monthKey, 12);
+    }
+
+    public static int monthOf(int monthKey) {
+        return Math.floorMod(monthKey, 12) + 1;
+    }
+
+    private static class ComputeTask extends RecursiveTask<BudgetAggregates> {
+        private final BudgetRecordStore store;
+        private final int from;
+        private final int to;
+
+        ComputeTask(BudgetRecordStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BudgetAggregates compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                BudgetAggregates result = new BudgetAggregates();
+                for (int row = from; row < to; row++) {
+                    result.add(store, row);
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            ComputeTask left = new ComputeTask(store, from, middle);
+            left.fork();
+            BudgetAggregates right = new ComputeTask(store, middle, to).compute();
+            BudgetAggregates result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    // Open addressing from an int key (month key or year) to its rollup, linear
+    // probing over parallel arrays; a null rollup marks a free slot. Entries are only
+    // ever added, or all dropped together by clear().
+    private static class RollupTable {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private Rollup[] rollups = new Rollup[INITIAL_CAPACITY];
+        private int size;
+
+        Rollup get(int key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; rollups[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return rollups[slot];
+                }
+            }
+            return null;
+        }
+
+        Rollup getOrCreate(int key) {
+            Rollup rollup = get(key);
+            if (rollup == null) {
+                rollup = new Rollup();
+                put(key, rollup);
+            }
+            return rollup;
+        }
+
+        void merge(RollupTable other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.rollups[slot] != null) {
+                    getOrCreate(other.keys[slot]).merge(other.rollups[slot]);
+                }
+            }
+        }
+
+        void clear() {
+            keys = new int[INITIAL_CAPACITY];
+            rollups = new Rollup[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        SortedSet<Integer> keys() {
+            SortedSet<Integer> sorted = new TreeSet<>();
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (rollups[slot] != null) {
+                    sorted.add(keys[slot]);
+                }
+            }
+            return sorted;
+        }
+
+        private void put(int key, Rollup rollup) {
+            if (++size * 2 > keys.length) {
+                int[] oldKeys = keys;
+                Rollup[] oldRollups = rollups;
+                keys = new int[oldKeys.length * 2];
+                rollups = new Rollup[oldKeys.length * 2];
+                for (int slot = 0; slot < oldKeys.length; slot++) {
+                    if (oldRollups[slot] != null) {
+                        insert(oldKeys[slot], oldRollups[slot]);
+                    }
+                }
+            }
+            insert(key, rollup);
+        }
+
+        private void insert(int key, Rollup rollup) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (rollups[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            rollups[slot] = rollup;
+        }
+
+        // Month keys are consecutive, so spread them before masking
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Statistics for every category over one group of records
+    public static class Rollup {
+        private final Stats[] categories = new Stats[CATEGORIES];
+
+        Rollup() {
+            for (int i = 0; i < CATEGORIES; i++) {
+                categories[i] = new Stats();
+            }
+        }
+
+        void add(long[] values) {
+            for (int i = 0; i < CATEGORIES; i++) {
+                categories[i].add(values[i]);
+            }
+        }
+
+        void merge(Rollup other) {
+            for (int i = 0; i < CATEGORIES; i++) {
+                categories[i].merge(other.categories[i]);
+            }
+        }
+
+        void clear() {
+            for (Stats stats : categories) {
+                stats.clear();
+            }
+        }
+
+        public Stats get(int category) {
+            return categories[category];
+        }
+
+        public long getCount() {
+            return categories[0].getCount();
+        }
+    }
+
+    // Count, sum, min and max in cents, and Welford mean/variance (kept in cents and
+    // scaled on read); merges use Chan's formula
+    public static class Stats {
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private double mean;
+        private double m2;
+
+        void add(long cents) {
+            count++;
+            sum = Money.add(sum, cents);
+            if (cents < min) min = cents;
+            if (cents > max) max = cents;
+            double value = cents;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        void merge(Stats other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (count == 0) {
+                count = other.count;
+                sum = other.sum;
+                min = other.min;
+                max = other.max;
+                mean = other.mean;
+                m2 = other.m2;
+                return;
+            }
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+            sum = Money.add(sum, other.sum);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        void clear() {
+            count = 0;
+            sum = 0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            mean = 0;
+            m2 = 0;
+        }
+
+        public long getCount() { return count; }
+        public long getSumCents() { return sum; }
+        public long getMinCents() { return count == 0 ? 0 : min; }
+        public long getMaxCents() { return count == 0 ? 0 : max; }
+        public double getSum() { return Money.toDouble(getSumCents()); }
+        public double getMin() { return Money.toDouble(getMinCents()); }
+        public double getMax() { return Money.toDouble(getMaxCents()); }
+        public double getMean() { return mean / 100; }
+        public double getVariance() { return count == 0 ? 0 : m2 / count / 10_000; }
+        public double getStandardDeviation() { return Math.sqrt(getVariance()); }
+    }
+}
@@ -0,0 +1,303 @@
+package budgetplannerapp;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Budget Analytics
+// Spending trends over the whole history: month-over-month change, rolling averages,
+// category share, savings-rate percentiles and a next-month forecast. Everything is
+// derived from one small summary per month, built from the primitive store columns on
+// the fork-join pool. After that only months that receive new rows are summarised
+// again (in parallel, through the query index), so a single save does not rescan history.
+class BudgetAnalytics {
+    public static final int ROLLING_MONTHS = 3;
+    public static final double[] PERCENTILES = {0.10, 0.25, 0.50, 0.75, 0.90};
+
+    // Savings rate histogram: 0.5% bins from -100% to +100%, plus one bin either side
+    private static final double RATE_MIN = -1.0;
+    private static final double RATE_BIN = 0.005;
+    private static final int RATE_BINS = 400;
+    private static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+    // Holt's linear smoothing for the forecast
+    private static final double LEVEL_SMOOTHING = 0.5;
+    private static final double TREND_SMOOTHING = 0.3;
+
+    private final BudgetRecordStore store;
+    private final BudgetQueryIndex index;
+    private final Map<Integer, MonthSummary> months = new HashMap<>();
+    private final Set<Integer> dirtyMonths = new HashSet<>();
+    private int analyzedRows = 0;
+    private int generation;
+    private Report report;
+
+    public BudgetAnalytics(BudgetRecordStore store, BudgetQueryIndex index) {
+        this.store = store;
+        this.index = index;
+        this.generation = store.getGeneration();
+    }
+
+    // Brings the month summaries up to date with the store and returns the report
+    public synchronized Report refresh() {
+        long start = System.nanoTime();
+        int size = store.size();
+        if (store.getGeneration() != generation || size < analyzedRows) {
+            months.clear();
+            dirtyMonths.clear();
+            analyzedRows = 0;
+            generation = store.getGeneration();
+        }
+
+        if (size - analyzedRows > analyzedRows) {
+            // Mostly new data: one parallel pass over everything is cheaper
+            months.clear();
+            dirtyMonths.clear();
+            months.putAll(ForkJoinPool.commonPool().invoke(new SummaryTask(store, 0, size)));
+            analyzedRows = size;
+            report = null;
+        } else if (size > analyzedRows) {
+            int cachedDay = BudgetRecordStore.IRREGULAR_DATE;
+            for (int row = analyzedRows; row < size; row++) {
+                int day = store.getEpochDay(row);
+                if (day != BudgetRecordStore.IRREGULAR_DATE && day != cachedDay) {
+                    cachedDay = day;
+                    dirtyMonths.add(monthKey(day));
+                }
+            }
+            analyzedRows = size;
+        }
+
+        if (!dirtyMonths.isEmpty()) {
+            int[] keys = dirtyMonths.stream().mapToInt(Integer::intValue).toArray();
+            MonthSummary[] summaries = Arrays.stream(keys).parallel()
+                .mapToObj(this::summariseMonth)
+                .toArray(MonthSummary[]::new);
+            for (int i = 0; i < keys.length; i++) {
+                if (summaries[i].count == 0) {
+                    months.remove(keys[i]);
+                } else {
+                    months.put(keys[i], summaries[i]);
+                }
+            }
+            dirtyMonths.clear();
+            report = null;
+        }
+
+        if (report == null) {
+            report = new Report(new TreeMap<>(months), analyzedRows, System.nanoTime() - start);
+        }
+        return report;
+    }
+
+    private MonthSummary summariseMonth(int monthKey) {
+        LocalDate first = LocalDate.of(BudgetAggregates.yearOf(monthKey), BudgetAggregates.monthOf(monthKey), 1);
+        MonthSummary summary = new MonthSummary();
+        index.forEach(BudgetQuery.all().between(first, first.plusMonths(1).minusDays(1)),
+            row -> summary.add(store, row));
+        return summary;
+    }
+
+    private static int monthKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return BudgetAggregates.monthKey(date.getYear(), date.getMonthValue());
+    }
+
+    // Sums per category in cents and a savings-rate histogram for one month
+    private static class MonthSummary {
+        final long[] sums = new long[BudgetAggregates.CATEGORIES];
+        final long[] rates = new long[RATE_BINS + 2];
+        long count;
+
+        void add(BudgetRecordStore store, int row) {
+            long income = store.getCents(BudgetRecordStore.INCOME, row);
+            long expenses = store.getTotalExpensesCents(row);
+            for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                sums[column] = Money.add(sums[column], store.getCents(column, row));
+            }
+            sums[BudgetAggregates.TOTAL_EXPENSES] = Money.add(sums[BudgetAggregates.TOTAL_EXPENSES], expenses);
+            sums[BudgetAggregates.SAVINGS] = Money.add(sums[BudgetAggregates.SAVINGS], income - expenses);
+            count++;
+            if (income > 0) {
+                rates[rateBin((double) (income - expenses) / income)]++;
+            }
+        }
+
+        void merge(MonthSummary other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] = Money.add(sums[i], other.sums[i]);
+            }
+            for (int i = 0; i < rates.length; i++) {
+                rates[i] += other.rates[i];
+            }
+            count += other.count;
+        }
+
+        private static int rateBin(double rate) {
+            if (!(rate >= RATE_MIN)) {
+                return 0;
+            }
+            return (int) Math.min(RATE_BINS + 1, 1 + (long) ((rate - RATE_MIN) / RATE_BIN));
+        }
+    }
+
+    private static class SummaryTask extends RecursiveTask<Map<Integer, MonthSummary>> {
+        private final BudgetRecordStore store;
+        private final int from;
+        private final int to;
+
+        SummaryTask(BudgetRecordStore store, int from, int to) {
+            this.store = store;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, MonthSummary> compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                Map<Integer, MonthSummary> result = new HashMap<>();
+                int cachedDay = BudgetRecordStore.IRREGULAR_DATE;
+                MonthSummary current = null;
+                for (int row = from; row < to; row++) {
+                    int day = store.getEpochDay(row);
+                    if (day == BudgetRecordStore.IRREGULAR_DATE) {
+                        continue; // no month to file it under
+                    }
+                    if (day != cachedDay) {
+                        cachedDay = day;
+                        current = result.computeIfAbsent(monthKey(day), key -> new MonthSummary());
+                    }
+                    current.add(store, row);
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(store, from, mid);
+            left.fork();
+            Map<Integer, MonthSummary> right = new SummaryTask(store, mid, to).compute();
+            Map<Integer, MonthSummary> result = left.join();
+            for (Map.Entry<Integer, MonthSummary> entry : right.entrySet()) {
+                MonthSummary existing = result.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                }
+            }
+            return result;
+        }
+    }
+
+    // Immutable results for every calendar month from the first with data to the last,
+    // oldest first. Months in between without rows count as zero, so the trends step
+    // one month at a time rather than from one month with data to the next.
+    public static class Report {
+        private final int[] monthKeys;
+        private final double[][] monthly; // [category][month]
+        private final long[] rates = new long[RATE_BINS + 2];
+        private final long rows;
+        private final long elapsedNanos;
+
+        Report(SortedMap<Integer, MonthSummary> months, long rows, long elapsedNanos) {
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+            int first = months.isEmpty() ? 0 : months.firstKey();
+            int count = months.isEmpty() ? 0 : months.lastKey() - first + 1;
+            monthKeys = new int[count];
+            monthly = new double[BudgetAggregates.CATEGORIES][count];
+            for (int i = 0; i < count; i++) {
+                monthKeys[i] = first + i;
+            }
+            for (Map.Entry<Integer, MonthSummary> entry : months.entrySet()) {
+                int i = entry.getKey() - first;
+                MonthSummary summary = entry.getValue();
+                for (int category = 0; category < BudgetAggregates.CATEGORIES; category++) {
+                    monthly[category][i] = Money.toDouble(summary.sums[category]);
+                }
+                for (int bin = 0; bin < rates.length; bin++) {
+                    rates[bin] += summary.rates[bin];
+                }
+            }
+        }
+
+        public int getMonthCount() { return monthKeys.length; }
+        public int[] getMonthKeys() { return monthKeys.clone(); }
+        public long getRows() { return rows; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double[] getMonthlyTotals(int category) {
+            return monthly[category].clone();
+        }
+
+        // Change of the latest month against the calendar month before, as a fraction;
+        // NaN without two months or when the one before is zero
+        public double getMonthOverMonthChange(int category) {
+            int n = monthKeys.length;
+            if (n < 2 || monthly[category][n - 2] == 0) {
+                return Double.NaN;
+            }
+            return (monthly[category][n - 1] - monthly[category][n - 2]) / Math.abs(monthly[category][n - 2]);
+        }
+
+        // Average of each month and the ROLLING_MONTHS - 1 months before it
+        public double[] getRollingAverage(int category) {
+            double[] values = monthly[category];
+            double[] averages = new double[values.length];
+            double window = 0;
+            for (int i = 0; i < values.length; i++) {
+                window += values[i];
+                if (i >= ROLLING_MONTHS) {
+                    window -= values[i - ROLLING_MONTHS];
+                }
+                averages[i] = window / Math.min(i + 1, ROLLING_MONTHS);
+            }
+            return averages;
+        }
+
+        // Fraction of all expenses spent in one expense category
+        public double getCategoryShare(int category) {
+            double total = sum(BudgetAggregates.TOTAL_EXPENSES);
+            return total == 0 ? 0 : sum(category) / total;
+        }
+
+        private double sum(int category) {
+            return Arrays.stream(monthly[category]).sum();
+        }
+
+        // Savings as a fraction of income over budgets with income, read from the
+        // histogram (to within half a percent); NaN when no budget had income
+        public double getSavingsRatePercentile(double fraction) {
+            long total = Arrays.stream(rates).sum();
+            if (total == 0) {
+                return Double.NaN;
+            }
+            double target = fraction * total;
+            long seen = 0;
+            for (int bin = 0; bin < rates.length; bin++) {
+                if (rates[bin] > 0 && seen + rates[bin] >= target) {
+                    if (bin == 0) return RATE_MIN;
+                    if (bin == RATE_BINS + 1) return RATE_MIN + RATE_BINS * RATE_BIN;
+                    double within = (target - seen) / rates[bin];
+                    return RATE_MIN + (bin - 1 + within) * RATE_BIN;
+                }
+                seen += rates[bin];
+            }
+            return RATE_MIN + RATE_BINS * RATE_BIN;
+        }
+
+        // Next month's total by Holt's linear exponential smoothing; NaN without data
+        public double getForecast(int category) {
+            double[] values = monthly[category];
+            if (values.length == 0) {
+                return Double.NaN;
+            }
+            double level = values[0];
+            double trend = values.length > 1 ? values[1] - values[0] : 0;
+            for (int i = 1; i < values.length; i++) {
+                double previous = level;
+                level = LEVEL_SMOOTHING * values[i] + (1 - LEVEL_SMOOTHING) * (level + trend);
+                trend = TREND_SMOOTHING * (level - previous) + (1 - TREND_SMOOTHING) * trend;
+            }
+            return level + trend;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package budgetplannerapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Batch CLI
+// Headless mode for nightly drops: BudgetPlannerApp --batch <dir> [options]. Every
+// matching file goes through the same importer, aggregates, CSV exporter and bulk
+// writer as the GUI. Files run on their own worker threads and share one fork-join
+// pool of the same size for parsing and summarising. Nothing here loads Swing or AWT,
+// so startup costs only the JVM and these few classes.
+final class BudgetBatchCli {
+    public static final String FLAG = "--batch";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: BudgetPlannerApp --batch <input dir> [options]",
+        "  --out <dir>             write <name>.csv for every input file",
+        "  --gzip                  write <name>.csv.gz instead",
+        "  --pattern <glob>        input files to pick up (default *.txt)",
+        "  --workers <n>           files processed at once, and parser threads (default: CPU count)",
+        "  --db                    bulk insert every file's records into Transactions",
+        "  --db-url <jdbc url>     database for --db instead of the built-in one",
+        "  --db-user <name>        user for --db-url",
+        "  --db-password <secret>  password for --db-url",
+        "  --user <name>           owner of the inserted rows (default user id 0)");
+
+    private final Options options;
+    private final ForkJoinPool pool;
+    // Writers beyond the connection pool size would only time out waiting for a connection
+    private final Semaphore dbWriters = new Semaphore(DBConnection.POOL_SIZE);
+
+    private BudgetBatchCli(Options options) {
+        this.options = options;
+        this.pool = new ForkJoinPool(options.workers);
+    }
+
+    // Returns the process exit code: 0 when every file went through, 1 on failures, 2 on bad arguments
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            return new BudgetBatchCli(options).process();
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private int process() throws IOException {
+        List<File> files = listInputs();
+        if (files.isEmpty()) {
+            System.err.println("No files matching " + options.pattern + " in " + options.input);
+            return 1;
+        }
+        if (options.out != null) {
+            Files.createDirectories(options.out.toPath());
+        }
+        if (options.dbUrl != null) {
+            DBConnection.configure(options.dbUrl, options.dbUser, options.dbPassword);
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(options.workers, runnable -> {
+            Thread thread = new Thread(runnable, "batch-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        List<Future<FileReport>> reports = new ArrayList<>(files.size());
+        for (File file : files) {
+            reports.add(workers.submit(() -> {
+                try {
+                    FileReport report = processFile(file);
+                    System.out.println(report);
+                    return report;
+                } catch (Exception e) {
+                    System.err.println("FAILED " + file.getName() + ": " + e);
+                    throw e;
+                }
+            }));
+        }
+
+        BudgetAggregates totals = new BudgetAggregates();
+        int failed = 0;
+        long lines = 0;
+        long skipped = 0;
+        long bytes = 0;
+        try {
+            for (Future<FileReport> future : reports) {
+                try {
+                    FileReport report = future.get();
+                    totals.merge(report.totals);
+                    lines += report.imported.getLines();
+                    skipped += report.imported.getSkipped();
+                    bytes += report.imported.getBytes();
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted");
+        } finally {
+            workers.shutdownNow();
+            pool.shutdown();
+            if (options.db) {
+                DBConnection.shutdown();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        BudgetAggregates.Rollup overall = totals.getOverall();
+        double seconds = elapsed / 1e9;
+        System.out.printf("Batch: %d files (%d failed), %,d lines (%,d skipped), %.1f MB in %.2f s with %d workers%n",
+            files.size(), failed, lines, skipped, bytes / 1048576.0, seconds, options.workers);
+        System.out.printf("  %,.0f lines/s, %.1f MB/s%n", lines / seconds, bytes / 1048576.0 / seconds);
+        System.out.printf("  Income %s, expenses %s, savings %s over %,d records%n",
+            Money.format(overall.get(BudgetRecordStore.INCOME).getSumCents()),
+            Money.format(overall.get(BudgetAggregates.TOTAL_EXPENSES).getSumCents()),
+            Money.format(overall.get(BudgetAggregates.SAVINGS).getSumCents()), overall.getCount());
+        return failed == 0 ? 0 : 1;
+    }
+
+    private List<File> listInputs() throws IOException {
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(options.input.toPath(), options.pattern)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    files.add(entry.toFile());
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    // import -> summarise -> export -> database, each stage timed on its own
+    private FileReport processFile(File file) throws IOException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        BudgetImporter.ImportResult imported = new BudgetImporter(pool).importFile(file, null);
+        BudgetRecordStore records = imported.getRecords();
+
+        long stage = System.nanoTime();
+        BudgetAggregates totals = BudgetAggregates.compute(pool, records, 0, records.size());
+        long summariseNanos = System.nanoTime() - stage;
+
+        long exportNanos = 0;
+        if (options.out != null) {
+            File target = new File(options.out, baseName(file) + (options.gzip ? ".csv.gz" : ".csv"));
+            exportNanos = new BudgetCsvExporter(options.gzip).export(records, records.size(), target, null)
+                .getElapsedNanos();
+        }
+
+        long dbNanos = 0;
+        if (options.db) {
+            dbWriters.acquire();
+            try (Connection conn = DBConnection.getConnection()) {
+                dbNanos = new TransactionBulkWriter().insertAll(conn, options.userId, records).getElapsedNanos();
+            } finally {
+                dbWriters.release();
+            }
+        }
+        return new FileReport(file, imported, totals, summariseNanos, exportNanos, dbNanos, System.nanoTime() - start);
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static class FileReport {
+        final File file;
+        final BudgetImporter.ImportResult imported;
+        final BudgetAggregates totals;
+        final long summariseNanos;
+        final long exportNanos;
+        final long dbNanos;
+        final long elapsedNanos;
+
+        FileReport(File file, BudgetImporter.ImportResult imported, BudgetAggregates totals,
+                   long summariseNanos, long exportNanos, long dbNanos, long elapsedNanos) {
+            this.file = file;
+            this.imported = imported;
+            this.totals = totals;
+            this.summariseNanos = summariseNanos;
+            this.exportNanos = exportNanos;
+            this.dbNanos = dbNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %,11d lines %,7d skipped %8.1f MB | import %6.0f ms, summarise %5.0f ms, "
+                    + "export %6.0f ms, db %6.0f ms | %,11.0f lines/s",
+                file.getName(), imported.getLines(), imported.getSkipped(), imported.getBytes() / 1048576.0,
+                imported.getElapsedNanos() / 1e6, summariseNanos / 1e6, exportNanos / 1e6, dbNanos / 1e6,
+                elapsedNanos == 0 ? 0 : imported.getLines() * 1e9 / elapsedNanos);
+        }
+    }
+
+    private static class Options {
+        File input;
+        File out;
+        boolean gzip;
+        String pattern = "*.txt";
+        int workers = Runtime.getRuntime().availableProcessors();
+        boolean db;
+        String dbUrl;
+        String dbUser;
+        String dbPassword;
+        int userId;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--out": options.out = new File(value(args, ++i, arg)); break;
+                    case "--gzip": options.gzip = true; break;
+                    case "--pattern": options.pattern = value(args, ++i, arg); break;
+                    case "--workers": options.workers = positive(value(args, ++i, arg), arg); break;
+                    case "--db": options.db = true; break;
+                    case "--db-url": options.dbUrl = value(args, ++i, arg); options.db = true; break;
+                    case "--db-user": options.dbUser = value(args, ++i, arg); break;
+                    case "--db-password": options.dbPassword = value(args, ++i, arg); break;
+                    case "--user": options.userId = UserSessionStore.userIdFor(value(args, ++i, arg)); break;
+                    default:
+                        if (arg.startsWith("--") || options.input != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        options.input = new File(arg);
+                }
+            }
+            if (options.input == null || !options.input.isDirectory()) {
+                throw new IllegalArgumentException("Input directory missing or not a directory: " + options.input);
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            return args[index];
+        }
+
+        private static int positive(String text, String option) {
+            try {
+                int value = Integer.parseInt(text);
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(option + " must be a positive number: " + text);
+        }
+    }
+}
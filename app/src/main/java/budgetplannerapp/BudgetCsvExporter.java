@@ -0,0 +1,309 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+// CSV Exporter
+// Writes the same bytes as the old PrintWriter.printf("%s,%.2f,...%n") loop, but
+// formats the stored cents by hand into a reused byte buffer and writes through a FileChannel
+// with a large direct buffer. Output can optionally be gzipped. The file is written
+// to a temp file next to it and only moved into place once the export has succeeded,
+// so a cancelled or failed export leaves the old file as it was.
+class BudgetCsvExporter {
+    public static final String HEADER = "Date,Income,Food,Rent,Travel,Study,Entertainment,Total Expenses,Savings";
+
+    public interface ProgressListener {
+        void onProgress(int rowsWritten, int rowsTotal);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int LINE_CAPACITY = 1024;
+    private static final int PROGRESS_MASK = 0xFFFF;
+
+    private static final Metrics.Counter ROWS = Metrics.counter("export.rows");
+    private static final Metrics.Counter BYTES = Metrics.counter("export.bytes");
+    private static final Metrics.Histogram EXPORT_NANOS = Metrics.histogram("export.time");
+    private static volatile long lastBytesPerSecond;
+
+    static {
+        Metrics.gauge("export.lastBytesPerSecond", () -> lastBytesPerSecond);
+    }
+
+    private final boolean gzip;
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private final Charset charset = Charset.defaultCharset();
+    private final Locale locale = Locale.getDefault();
+    private final boolean plainDigits;
+    private volatile boolean cancelled = false;
+
+    // Per-export scratch state
+    private byte[] line = new byte[LINE_CAPACITY];
+    private int length;
+    private int cachedEpochDay = BudgetRecordStore.IRREGULAR_DATE;
+    private final byte[] cachedDate = new byte[10];
+
+    public BudgetCsvExporter() {
+        this(false);
+    }
+
+    public BudgetCsvExporter(boolean gzip) {
+        this.gzip = gzip;
+        // PrintWriter.printf formats with Locale.getDefault(), not the FORMAT category;
+        // only plain ASCII digits can be written directly
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.plainDigits = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ExportResult export(BudgetRecordStore store, int rows, File file, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        Sink sink = new Sink(file);
+        long bytes;
+        boolean published = false;
+        try {
+            writeHeader(sink);
+            for (int row = 0; row < rows; row++) {
+                formatRow(store, row);
+                sink.write(line, length);
+
+                if ((row & PROGRESS_MASK) == 0) {
+                    if (cancelled) {
+                        throw new CancellationException("Export cancelled");
+                    }
+                    if (listener != null) {
+                        listener.onProgress(row, rows);
+                    }
+                }
+            }
+            bytes = sink.close();
+            Files.move(sink.temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            published = true;
+        } finally {
+            if (!published) {
+                sink.abort();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        ROWS.add(rows);
+        BYTES.add(bytes);
+        EXPORT_NANOS.record(elapsed);
+        lastBytesPerSecond = elapsed == 0 ? 0 : (long) (bytes * 1e9 / elapsed);
+        return new ExportResult(rows, bytes, file, elapsed);
+    }
+
+    private void writeHeader(Sink sink) throws IOException {
+        length = 0;
+        appendBytes(HEADER.getBytes(charset));
+        appendBytes(lineSeparator);
+        sink.write(line, length);
+    }
+
+    private void formatRow(BudgetRecordStore store, int row) {
+        length = 0;
+        int epochDay = store.getEpochDay(row);
+        if (epochDay == BudgetRecordStore.IRREGULAR_DATE) {
+            appendBytes(store.getDate(row).getBytes(charset));
+        } else {
+            appendDate(epochDay);
+        }
+        for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+            line[length++] = ',';
+            appendCents(store.getCents(column, row));
+        }
+        line[length++] = ',';
+        appendCents(store.getTotalExpensesCents(row));
+        line[length++] = ',';
+        appendCents(store.getSavingsCents(row));
+        appendBytes(lineSeparator);
+    }
+
+    private void appendDate(int epochDay) {
+        if (epochDay != cachedEpochDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            writeDigits(cachedDate, 0, date.getYear(), 4);
+            cachedDate[4] = '-';
+            writeDigits(cachedDate, 5, date.getMonthValue(), 2);
+            cachedDate[7] = '-';
+            writeDigits(cachedDate, 8, date.getDayOfMonth(), 2);
+            cachedEpochDay = epochDay;
+        }
+        ensureCapacity(10);
+        System.arraycopy(cachedDate, 0, line, length, 10);
+        length += 10;
+    }
+
+    private static void writeDigits(byte[] target, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Whole cents are exactly what %.2f prints for the matching double, so the digits
+    // are written straight from the long; other locales still go through String.format
+    void appendCents(long cents) {
+        if (!plainDigits) {
+            appendBytes(String.format(locale, "%.2f", Money.toDouble(cents)).getBytes(charset));
+            return;
+        }
+        ensureCapacity(24);
+        if (cents < 0) {
+            line[length++] = '-';
+        }
+        appendLong(Math.abs(cents / 100));
+        line[length++] = '.';
+        long fractionDigits = Math.abs(cents % 100);
+        line[length++] = (byte) ('0' + fractionDigits / 10);
+        line[length++] = (byte) ('0' + fractionDigits % 10);
+    }
+
+    private void appendLong(long value) {
+        if (value == 0) {
+            line[length++] = '0';
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            line[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, line, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + extra));
+        }
+    }
+
+    // One output file, written to a temp file beside it: a direct buffer drained into
+    // the channel, optionally through gzip
+    private class Sink {
+        final File temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final GZIPOutputStream compressed;
+
+        Sink(File file) throws IOException {
+            temp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+            try {
+                channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            }
+            if (gzip) {
+                buffer = null;
+                compressed = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            } else {
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                compressed = null;
+            }
+        }
+
+        void write(byte[] bytes, int count) throws IOException {
+            if (compressed != null) {
+                compressed.write(bytes, 0, count);
+                return;
+            }
+            if (buffer.remaining() < count) {
+                drain();
+                if (count > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(bytes, 0, count));
+                    return;
+                }
+            }
+            buffer.put(bytes, 0, count);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // Returns the bytes that ended up on disk, compressed if gzipped
+        long close() throws IOException {
+            try {
+                if (compressed != null) {
+                    compressed.finish(); // writes the trailer straight through to the channel
+                } else {
+                    drain();
+                }
+                return channel.size();
+            } finally {
+                release();
+            }
+        }
+
+        // Closes (again, if close() got that far) and deletes the temp file
+        void abort() {
+            try {
+                release();
+            } catch (IOException e) {
+                // Already failing; keep the original error
+            }
+            temp.delete();
+        }
+
+        // Closing the gzip stream also frees its deflater and closes the channel
+        private void release() throws IOException {
+            try {
+                if (compressed != null) {
+                    compressed.close();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public static class ExportResult {
+        private final int rows;
+        private final long bytes;
+        private final File file;
+        private final long elapsedNanos;
+
+        ExportResult(int rows, long bytes, File file, long elapsedNanos) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.file = file;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public File getFile() { return file; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
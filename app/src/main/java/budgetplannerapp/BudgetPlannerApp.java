@@ -1,17 +1,27 @@
+package budgetplannerapp;
+
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import javax.swing.*;
 import javax.swing.border.*;
-import javax.swing.table.DefaultTableModel;
 import java.sql.*;
 
 public class BudgetPlannerApp {
     public static void main(String[] args) {
+        Metrics.start();
+        // Batch mode never touches Swing or AWT
+        if (args.length > 0 && args[0].equals(BudgetBatchCli.FLAG)) {
+            System.exit(BudgetBatchCli.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        EdtHeartbeat.start();
+        EdtWatchdog.start(); // names on the action buttons show up in its reports
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -82,15 +92,12 @@ class ModernButton extends JButton {
 
     @Override
     protected void paintComponent(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
+        long start = PaintCache.Stats.start();
         Color currentColor = isHovered ? hoverColor : backgroundColor;
-        g2.setColor(currentColor);
-        g2.fillRoundRect(0, 0, getWidth(), getHeight(), 8, 8);
+        PaintCache.paintRoundRect(g, getWidth(), getHeight(), 8, currentColor);
         
         super.paintComponent(g);
-        g2.dispose();
+        PaintCache.Stats.record(this, start);
     }
 }
 
@@ -107,14 +114,53 @@ class RoundedPanel extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        g2.setColor(backgroundColor);
-        g2.fillRoundRect(0, 0, getWidth(), getHeight(), cornerRadius, cornerRadius);
+        long start = PaintCache.Stats.start();
+        PaintCache.paintRoundRect(g, getWidth(), getHeight(), cornerRadius, backgroundColor);
         
         super.paintComponent(g);
-        g2.dispose();
+        PaintCache.Stats.record(this, start);
+    }
+}
+
+// Status Bar listing running background tasks
+class TaskStatusBar extends JPanel {
+    public TaskStatusBar(BackgroundTaskRunner runner) {
+        setLayout(new FlowLayout(FlowLayout.LEFT, 15, 5));
+        setBackground(Color.WHITE);
+        setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, AppColors.BACKGROUND));
+        runner.addListener(this::showTasks);
+        showTasks(Collections.emptyList());
+    }
+
+    private void showTasks(List<BackgroundTaskRunner.BackgroundTask> running) {
+        removeAll();
+        if (running.isEmpty()) {
+            JLabel idle = new JLabel("Ready");
+            idle.setFont(AppFonts.SMALL);
+            idle.setForeground(AppColors.TEXT_SECONDARY);
+            add(idle);
+        }
+        for (BackgroundTaskRunner.BackgroundTask task : running) {
+            JLabel title = new JLabel(task.getTitle() + (task.getNote().isEmpty() ? "" : " (" + task.getNote() + ")"));
+            title.setFont(AppFonts.SMALL);
+            title.setForeground(AppColors.TEXT_PRIMARY);
+
+            JProgressBar bar = new JProgressBar(0, 100);
+            bar.setPreferredSize(new Dimension(120, 12));
+            bar.setIndeterminate(task.getProgress() < 0);
+            bar.setValue(Math.max(0, task.getProgress()));
+
+            JButton cancel = new JButton(task.isCancelled() ? "Cancelling..." : "Cancel");
+            cancel.setFont(AppFonts.SMALL);
+            cancel.setEnabled(!task.isCancelled());
+            cancel.addActionListener(e -> task.cancel());
+
+            add(title);
+            add(bar);
+            add(cancel);
+        }
+        revalidate();
+        repaint();
     }
 }
 
@@ -208,6 +254,7 @@ class LoginFrame extends JFrame {
 
         // Buttons
         ModernButton loginBtn = new ModernButton("Login", AppColors.SUCCESS);
+        loginBtn.setName("loginBtn");
         loginBtn.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
         loginBtn.addActionListener(e -> handleLogin());
 
@@ -261,7 +308,7 @@ class LoginFrame extends JFrame {
         // Simple validation (in real app, check against database)
         if (username.length() >= 3) {
             dispose();
-            SwingUtilities.invokeLater(() -> new MainFrame(username).setVisible(true));
+            SwingUtilities.invokeLater(() -> new MainFrame(UserSessionStore.userIdFor(username), username).setVisible(true));
         } else {
             JOptionPane.showMessageDialog(this, "Invalid credentials", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -333,6 +380,7 @@ class SignupFrame extends JFrame {
         confirmPasswordField = createPasswordField("Confirm Password");
 
         ModernButton signupBtn = new ModernButton("Sign Up", AppColors.PRIMARY);
+        signupBtn.setName("signupBtn");
         signupBtn.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
         signupBtn.addActionListener(e -> handleSignup());
 
@@ -432,75 +480,203 @@ class SignupFrame extends JFrame {
 }
 
 // Budget Record Class
+// Amounts are kept in whole cents (see Money); the double getters are for display
 class BudgetRecord {
     private String date;
-    private double income;
-    private double food;
-    private double rent;
-    private double travel;
-    private double study;
-    private double entertainment;
-    private double totalExpenses;
-    private double savings;
+    private long income;
+    private long food;
+    private long rent;
+    private long travel;
+    private long study;
+    private long entertainment;
 
     public BudgetRecord(double income, double food, double rent, double travel, double study, double entertainment) {
-        this.date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-        this.income = income;
-        this.food = food;
-        this.rent = rent;
-        this.travel = travel;
-        this.study = study;
-        this.entertainment = entertainment;
-        this.totalExpenses = food + rent + travel + study + entertainment;
-        this.savings = income - totalExpenses;
-    }
-
-    // Constructor for file import
+        this(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+            income, food, rent, travel, study, entertainment);
+    }
+
+    // Constructor for file import; amounts are rounded to the nearest cent
     public BudgetRecord(String date, double income, double food, double rent, double travel, double study, double entertainment) {
+        this(date, Money.toCents(income), Money.toCents(food), Money.toCents(rent),
+            Money.toCents(travel), Money.toCents(study), Money.toCents(entertainment));
+    }
+
+    private BudgetRecord(String date, long income, long food, long rent, long travel, long study, long entertainment) {
         this.date = date;
-        this.income = income;
-        this.food = food;
-        this.rent = rent;
-        this.travel = travel;
-        this.study = study;
-        this.entertainment = entertainment;
-        this.totalExpenses = food + rent + travel + study + entertainment;
-        this.savings = income - totalExpenses;
+        this.income = Money.checkAmount(income);
+        this.food = Money.checkAmount(food);
+        this.rent = Money.checkAmount(rent);
+        this.travel = Money.checkAmount(travel);
+        this.study = Money.checkAmount(study);
+        this.entertainment = Money.checkAmount(entertainment);
+    }
+
+    public static BudgetRecord ofCents(String date, long income, long food, long rent, long travel, long study, long entertainment) {
+        return new BudgetRecord(date, income, food, rent, travel, study, entertainment);
+    }
+
+    // Dated today
+    public static BudgetRecord ofCents(long income, long food, long rent, long travel, long study, long entertainment) {
+        return ofCents(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+            income, food, rent, travel, study, entertainment);
+    }
+
+    // For views that read their values from a BudgetRecordStore
+    protected BudgetRecord() {
     }
 
     // Getters
     public String getDate() { return date; }
-    public double getIncome() { return income; }
-    public double getFood() { return food; }
-    public double getRent() { return rent; }
-    public double getTravel() { return travel; }
-    public double getStudy() { return study; }
-    public double getEntertainment() { return entertainment; }
-    public double getTotalExpenses() { return totalExpenses; }
-    public double getSavings() { return savings; }
+    public long getIncomeCents() { return income; }
+    public long getFoodCents() { return food; }
+    public long getRentCents() { return rent; }
+    public long getTravelCents() { return travel; }
+    public long getStudyCents() { return study; }
+    public long getEntertainmentCents() { return entertainment; }
+
+    // Amounts are at most Money.MAX_CENTS, so these cannot overflow
+    public long getTotalExpensesCents() {
+        return getFoodCents() + getRentCents() + getTravelCents() + getStudyCents() + getEntertainmentCents();
+    }
+
+    public long getSavingsCents() {
+        return getIncomeCents() - getTotalExpensesCents();
+    }
+
+    public double getIncome() { return Money.toDouble(getIncomeCents()); }
+    public double getFood() { return Money.toDouble(getFoodCents()); }
+    public double getRent() { return Money.toDouble(getRentCents()); }
+    public double getTravel() { return Money.toDouble(getTravelCents()); }
+    public double getStudy() { return Money.toDouble(getStudyCents()); }
+    public double getEntertainment() { return Money.toDouble(getEntertainmentCents()); }
+    public double getTotalExpenses() { return Money.toDouble(getTotalExpensesCents()); }
+    public double getSavings() { return Money.toDouble(getSavingsCents()); }
 }
 
 // Main Application Frame
 class MainFrame extends JFrame {
     private int userId; // New field to store the logged-in user's ID
     private String username;
-    // ... other fields ...
+    private BudgetRecordStore budgetRecords;
+    private BudgetAggregates aggregates;
+    private BudgetQueryIndex queryIndex;
+    private BudgetAnalytics analytics;
+    private JLabel analyticsLabel;
+    private boolean analyticsStale;
+    private RecordChangeBus changes = new RecordChangeBus();
+    private UserSessionStore.Session session;
+    private RecordJournal journal;
+    private RecordFingerprints fingerprints;
+    private BudgetWriteBehind budgetSync;
+    private BackgroundTaskRunner tasks;
+    private CardLayout cardLayout;
+    private JPanel contentPanel;
+    private CardRegistry cards;
+    private StartupTimer startup = new StartupTimer("Main window");
+    private JButton dashboardBtn, addBudgetBtn, recordsBtn, logOutBtn;
+    private BudgetTableModel tableModel;
+    private JTable recordsTable;
 
     public MainFrame(int userId, String username) { // Modified constructor
         this.userId = userId;
         this.username = username;
-        this.budgetRecords = new ArrayList<>(); // You'll replace this with DB data
+        this.budgetSync = BudgetWriteBehind.shared();
+        this.tasks = new BackgroundTaskRunner();
         initializeFrame();
+        showLoading();
+        startup.phase("window");
+        // Loading a session can replay a journal and rebuild indexes, so it stays off the EDT
+        tasks.submit("session", "Loading budget history", t -> UserSessionStore.shared().open(userId),
+            this::sessionOpened, this::sessionFailed);
+    }
+
+    private void showLoading() {
+        JLabel loading = new JLabel("Loading budget history...", SwingConstants.CENTER);
+        loading.setFont(AppFonts.BODY);
+        loading.setForeground(AppColors.TEXT_PRIMARY);
+        getContentPane().setBackground(AppColors.BACKGROUND);
+        add(loading, BorderLayout.CENTER);
+    }
+
+    private void sessionOpened(UserSessionStore.Session session) {
+        this.session = session;
+        this.journal = session.getJournal();
+        this.fingerprints = session.getFingerprints();
+        this.budgetRecords = session.getRecords();
+        this.aggregates = session.getAggregates();
+        this.queryIndex = session.getQueryIndex();
+        this.analytics = session.getAnalytics();
+        startup.phase("session");
+        changes.subscribe(change -> refreshAnalytics());
+        getContentPane().removeAll();
         createComponents();
         showDashboard();
+        revalidate();
+        repaint();
+        refreshAnalytics();
     }
-    // ...
-}
+
+    private void sessionFailed(Throwable error) {
+        JOptionPane.showMessageDialog(this, 
+            "Could not load your budget history: " + error.getMessage(), 
+            "Login Error", 
+            JOptionPane.ERROR_MESSAGE);
+        tasks.shutdown();
+        dispose();
+        SwingUtilities.invokeLater(() -> new LoginFrame().setVisible(true));
+    }
+
+    // Reports startup time once the dashboard is on screen, then builds the other cards when idle
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (cards != null && startup.firstFrame()) {
+            cards.prewarm();
+        }
+    }
+
+    // Journals rows added since the last save; the journal commits them within a few milliseconds
+    private void saveHistory(int from) {
+        journal.append(from, budgetRecords.size());
+    }
+
+    // Hands the session back, where it stays loaded for the next login, and returns to the login screen.
+    // Queued saves, imports included, keep going on the shared writer.
+    private void logOut() {
+        tasks.shutdown();
+        UserSessionStore.shared().release(session);
+        dispose();
+        SwingUtilities.invokeLater(() -> new LoginFrame().setVisible(true));
+    }
+
     private void initializeFrame() {
         setTitle("Budget Planner - " + username);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         setExtendedState(JFrame.MAXIMIZED_BOTH);
         setLocationRelativeTo(null);
+
+        // Exits from another thread: forcing the journal and fingerprints is disk I/O, and the
+        // write-behind's shutdown hook gives queued saves a few seconds to reach the database
+        // (or the journal), so the EDT should wait on neither
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                tasks.shutdown();
+                UserSessionStore.Session closing = session; // null while it is still loading
+                dispose();
+                new Thread(() -> {
+                    try {
+                        if (closing != null) {
+                            closing.getJournal().commit();
+                            closing.saveFingerprints();
+                        }
+                    } catch (IOException ex) {
+                        System.err.println("Could not save budget history: " + ex.getMessage());
+                    }
+                    System.exit(0);
+                }, "budget-exit").start();
+            }
+        });
     }
 
     private void createComponents() {
@@ -513,11 +689,13 @@ class MainFrame extends JFrame {
 
         add(createSidebar(), BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
+        add(new TaskStatusBar(tasks), BorderLayout.SOUTH);
 
-        // Add all panels
-        contentPanel.add(createDashboardPanel(), "dashboard");
-        contentPanel.add(createAddBudgetPanel(), "addBudget");
-        contentPanel.add(createRecordsPanel(), "records");
+        // Panels are built the first time they are shown
+        cards = new CardRegistry(contentPanel, cardLayout);
+        cards.register("dashboard", this::createDashboardPanel);
+        cards.register("addBudget", this::createAddBudgetPanel);
+        cards.register("records", this::createRecordsPanel);
     }
 
     private JPanel createSidebar() {
@@ -559,6 +737,10 @@ class MainFrame extends JFrame {
 
         sidebar.add(Box.createVerticalGlue());
 
+        logOutBtn = createSidebarButton("Log Out");
+        logOutBtn.addActionListener(e -> logOut());
+        sidebar.add(logOutBtn);
+
         return sidebar;
     }
 
@@ -608,12 +790,13 @@ class MainFrame extends JFrame {
         topBar.add(welcomeLabel, BorderLayout.WEST);
 
         // Main content
-        JPanel mainContent = new JPanel(new GridLayout(1, 3, 20, 20));
+        JPanel mainContent = new JPanel(new GridLayout(1, 4, 20, 20));
         mainContent.setBackground(AppColors.BACKGROUND);
 
         // Quick Summary Card
+        JLabel summaryLabel = new JLabel();
         RoundedPanel summaryCard = createDashboardCard("Quick Summary", 
-            getSummaryText(), AppColors.PRIMARY);
+            summaryLabel, getSummaryText(), AppColors.PRIMARY);
 
         // Quick Actions
         RoundedPanel actionsCard = new RoundedPanel(15, Color.WHITE);
@@ -627,6 +810,7 @@ class MainFrame extends JFrame {
         ModernButton addBudgetQuickBtn = new ModernButton("Add Budget", AppColors.SUCCESS);
         ModernButton viewRecordsQuickBtn = new ModernButton("View Records", AppColors.PRIMARY);
         ModernButton importFileBtn = new ModernButton("Import from File", AppColors.ACCENT);
+        importFileBtn.setName("importFileBtn");
 
         addBudgetQuickBtn.addActionListener(e -> showAddBudget());
         viewRecordsQuickBtn.addActionListener(e -> showRecords());
@@ -641,12 +825,25 @@ class MainFrame extends JFrame {
         actionsCard.add(importFileBtn);
 
         // Recent Activity
+        JLabel activityLabel = new JLabel();
         RoundedPanel activityCard = createDashboardCard("Recent Activity", 
-            getRecentActivityText(), AppColors.TEXT_SECONDARY);
+            activityLabel, getRecentActivityText(), AppColors.TEXT_SECONDARY);
+
+        // Both texts read the running totals, so an update costs the same for any history size
+        changes.subscribe(change -> {
+            summaryLabel.setText("<html><center>" + getSummaryText() + "</center></html>");
+            activityLabel.setText("<html><center>" + getRecentActivityText() + "</center></html>");
+        });
+
+        // Analytics, filled in once the background pass finishes
+        analyticsLabel = new JLabel();
+        RoundedPanel analyticsCard = createDashboardCard("Analytics", 
+            analyticsLabel, "Analysing your history...", AppColors.ACCENT);
 
         mainContent.add(summaryCard);
         mainContent.add(actionsCard);
         mainContent.add(activityCard);
+        mainContent.add(analyticsCard);
 
         panel.add(topBar, BorderLayout.NORTH);
         panel.add(mainContent, BorderLayout.CENTER);
@@ -655,6 +852,11 @@ class MainFrame extends JFrame {
     }
 
     private void importFromFile() {
+        if (tasks.isRunning("import")) {
+            JOptionPane.showMessageDialog(this, "An import is already running.", "Import", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Select Budget File");
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
@@ -671,54 +873,84 @@ class MainFrame extends JFrame {
 
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
-            try {
-                importBudgetFromFile(selectedFile);
+            importBudgetFromFile(fileChooser.getSelectedFile());
+        }
+    }
+
+    // Parsed records not already in the history, plus their totals, handed from the import task to the EDT
+    private static class ImportedBatch {
+        final BudgetImporter.ImportResult result;
+        final RecordFingerprints.NewRows fresh;
+        final BudgetAggregates totals;
+
+        ImportedBatch(BudgetImporter.ImportResult result, RecordFingerprints.NewRows fresh, BudgetAggregates totals) {
+            this.result = result;
+            this.fresh = fresh;
+            this.totals = totals;
+        }
+    }
+
+    private void importBudgetFromFile(File file) {
+        BackgroundTaskRunner.BackgroundTask task = tasks.submit("import", "Importing " + file.getName(), t -> {
+            BudgetImporter importer = new BudgetImporter();
+            t.onCancel(importer::cancel);
+            BudgetImporter.ImportResult imported = importer.importFile(file, (done, total) ->
+                t.setProgress(total == 0 ? 100 : (int) (done * 100 / total)));
+            t.setNote("Checking for duplicates");
+            RecordFingerprints.NewRows fresh = fingerprints.findNew(imported.getRecords());
+            t.setNote("Summarising");
+            BudgetAggregates totals = BudgetAggregates.compute(fresh.getRecords(), 0, fresh.getRecords().size());
+            return new ImportedBatch(imported, fresh, totals);
+        }, batch -> {
+            BudgetImporter.ImportResult imported = batch.result;
+            int first = budgetRecords.size();
+            budgetRecords.addAll(batch.fresh.getRecords());
+            fingerprints.addAll(batch.fresh);
+            aggregates.merge(batch.totals);
+            changes.appendedAll(first, budgetRecords.size());
+            saveHistory(first);
+            // The new rows go on to Transactions through the write-behind, as multi-row inserts
+            if (!batch.fresh.getRecords().isEmpty()) {
+                saveRecordsToDatabase(userId, batch.fresh.getRecords());
+            }
+            JOptionPane.showMessageDialog(this, 
+                String.format("Budget data imported successfully!%n%,d records (%,d skipped, %,d already imported) in %.2f s%n" +
+                    "%,.0f lines/sec (target %,d lines/sec)",
+                    batch.fresh.getRecords().size(), imported.getSkipped(), batch.fresh.getDuplicates(),
+                    imported.getElapsedNanos() / 1e9, imported.getLinesPerSecond(),
+                    BudgetImporter.TARGET_LINES_PER_SECOND), 
+                "Import Complete", 
+                JOptionPane.INFORMATION_MESSAGE);
+        }, error -> {
+            if (error instanceof CancellationException) {
                 JOptionPane.showMessageDialog(this, 
-                    "Budget data imported successfully!", 
-                    "Import Complete", 
+                    "Import cancelled. No records were added.", 
+                    "Import Cancelled", 
                     JOptionPane.INFORMATION_MESSAGE);
-                refreshTableData();
-            } catch (Exception e) {
+            } else {
                 JOptionPane.showMessageDialog(this, 
-                    "Error importing file: " + e.getMessage(), 
+                    "Error importing file: " + error.getMessage(), 
                     "Import Error", 
                     JOptionPane.ERROR_MESSAGE);
             }
+        });
+        if (task == null) {
+            showBusy("Import");
         }
     }
 
-    private void importBudgetFromFile(File file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue; // Skip empty lines and comments
-                }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 7) {
-                    try {
-                        String date = parts[0].trim();
-                        double income = Double.parseDouble(parts[1].trim());
-                        double food = Double.parseDouble(parts[2].trim());
-                        double rent = Double.parseDouble(parts[3].trim());
-                        double travel = Double.parseDouble(parts[4].trim());
-                        double study = Double.parseDouble(parts[5].trim());
-                        double entertainment = Double.parseDouble(parts[6].trim());
-                        
-                        BudgetRecord record = new BudgetRecord(date, income, food, rent, travel, study, entertainment);
-                        budgetRecords.add(record);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Skipping invalid line: " + line);
-                    }
-                }
-            }
-        }
+    private void showBusy(String action) {
+        JOptionPane.showMessageDialog(this, 
+            action + " could not start: the same task or too many others are still running.", 
+            action, 
+            JOptionPane.WARNING_MESSAGE);
     }
 
     private RoundedPanel createDashboardCard(String title, String content, Color accentColor) {
+        return createDashboardCard(title, new JLabel(), content, accentColor);
+    }
+
+    private RoundedPanel createDashboardCard(String title, JLabel contentLabel, String content, Color accentColor) {
         RoundedPanel card = new RoundedPanel(15, Color.WHITE);
         card.setLayout(new BoxLayout(card, BoxLayout.Y_AXIS));
         card.setBorder(new EmptyBorder(20, 20, 20, 20));
@@ -728,7 +960,7 @@ class MainFrame extends JFrame {
         titleLabel.setForeground(accentColor);
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JLabel contentLabel = new JLabel("<html><center>" + content + "</center></html>");
+        contentLabel.setText("<html><center>" + content + "</center></html>");
         contentLabel.setFont(AppFonts.BODY);
         contentLabel.setForeground(AppColors.TEXT_PRIMARY);
         contentLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -746,8 +978,64 @@ class MainFrame extends JFrame {
         }
 
         BudgetRecord latest = budgetRecords.get(budgetRecords.size() - 1);
-        return String.format("Latest Savings: $%.2f<br>Total Expenses: $%.2f<br>Income: $%.2f", 
-            latest.getSavings(), latest.getTotalExpenses(), latest.getIncome());
+        BudgetAggregates.Rollup overall = aggregates.getOverall();
+        return String.format("Latest Savings: $%.2f<br>Total Expenses: $%.2f<br>Income: $%.2f<br><br>" +
+            "All-time Income: $%.2f<br>All-time Savings: $%.2f<br>Average Savings: $%.2f", 
+            latest.getSavings(), latest.getTotalExpenses(), latest.getIncome(),
+            overall.get(BudgetRecordStore.INCOME).getSum(),
+            overall.get(BudgetAggregates.SAVINGS).getSum(),
+            overall.get(BudgetAggregates.SAVINGS).getMean());
+    }
+
+    // Recomputes analytics off the EDT; a request while one is running queues one more pass
+    private void refreshAnalytics() {
+        if (tasks.isRunning("analytics")) {
+            analyticsStale = true;
+            return;
+        }
+        analyticsStale = false;
+        BackgroundTaskRunner.BackgroundTask task = tasks.submit("analytics", "Updating analytics",
+            t -> analytics.refresh(), report -> {
+                analyticsLabel.setText("<html><center>" + getAnalyticsText(report) + "</center></html>");
+                if (analyticsStale) {
+                    refreshAnalytics();
+                }
+            }, error -> analyticsLabel.setText("<html><center>Analytics unavailable:<br>" 
+                + error.getMessage() + "</center></html>"));
+        if (task == null) {
+            analyticsStale = true;
+        }
+    }
+
+    private String getAnalyticsText(BudgetAnalytics.Report report) {
+        if (report.getMonthCount() == 0) {
+            return "No dated budgets yet.<br>Trends appear once you add some!";
+        }
+        int top = BudgetRecordStore.FOOD;
+        for (int category = BudgetRecordStore.FOOD; category < BudgetRecordStore.AMOUNT_COLUMNS; category++) {
+            if (report.getCategoryShare(category) > report.getCategoryShare(top)) {
+                top = category;
+            }
+        }
+        double[] expenses = report.getMonthlyTotals(BudgetAggregates.TOTAL_EXPENSES);
+        double[] rolling = report.getRollingAverage(BudgetAggregates.TOTAL_EXPENSES);
+        double change = report.getMonthOverMonthChange(BudgetAggregates.TOTAL_EXPENSES);
+        return String.format("Latest month expenses: $%.2f%s<br>%d-month average: $%.2f<br>" +
+            "Biggest category: %s (%.0f%%)<br>Savings rate: median %s<br>(10th %s, 90th %s)<br><br>" +
+            "Next month forecast:<br>$%.2f expenses, $%.2f savings",
+            expenses[expenses.length - 1],
+            Double.isNaN(change) ? "" : String.format(" (%+.1f%%)", change * 100),
+            BudgetAnalytics.ROLLING_MONTHS, rolling[rolling.length - 1],
+            BudgetWriteBehind.CATEGORIES[top], report.getCategoryShare(top) * 100,
+            formatRate(report.getSavingsRatePercentile(0.50)),
+            formatRate(report.getSavingsRatePercentile(0.10)),
+            formatRate(report.getSavingsRatePercentile(0.90)),
+            report.getForecast(BudgetAggregates.TOTAL_EXPENSES),
+            report.getForecast(BudgetAggregates.SAVINGS));
+    }
+
+    private static String formatRate(double rate) {
+        return Double.isNaN(rate) ? "n/a" : String.format("%.1f%%", rate * 100);
     }
 
     private String getRecentActivityText() {
@@ -798,7 +1086,9 @@ class MainFrame extends JFrame {
         buttonsPanel.setOpaque(false);
 
         ModernButton calculateBtn = new ModernButton("Calculate", AppColors.SUCCESS);
+        calculateBtn.setName("calculateBtn");
         ModernButton saveBtn = new ModernButton("Save Record", AppColors.PRIMARY);
+        saveBtn.setName("saveBtn");
         ModernButton backBtn = new ModernButton("Back", AppColors.TEXT_SECONDARY);
 
         // Result panel
@@ -823,6 +1113,10 @@ class MainFrame extends JFrame {
         messageLabel.setFont(AppFonts.BODY);
         messageLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        JLabel syncLabel = new JLabel(" ");
+        syncLabel.setFont(AppFonts.SMALL);
+        syncLabel.setForeground(AppColors.TEXT_SECONDARY);
+
         resultPanel.add(resultTitle);
         resultPanel.add(Box.createVerticalStrut(15));
         resultPanel.add(expensesLabel);
@@ -833,20 +1127,19 @@ class MainFrame extends JFrame {
 
         calculateBtn.addActionListener(e -> {
             try {
-                double income = parseDouble(incomeField.getText());
-                double food = parseDouble(foodField.getText());
-                double rent = parseDouble(rentField.getText());
-                double travel = parseDouble(travelField.getText());
-                double study = parseDouble(studyField.getText());
-                double entertainment = parseDouble(entertainmentField.getText());
-
-                double totalExpenses = food + rent + travel + study + entertainment;
-                double savings = income - totalExpenses;
-
-                expensesLabel.setText("Total Expenses: $" + String.format("%.2f", totalExpenses));
-                savingsLabel.setText("Savings: $" + String.format("%.2f", savings));
+                long income = parseCents(incomeField.getText());
+                long food = parseCents(foodField.getText());
+                long rent = parseCents(rentField.getText());
+                long travel = parseCents(travelField.getText());
+                long study = parseCents(studyField.getText());
+                long entertainment = parseCents(entertainmentField.getText());
+
+                BudgetRecord draft = BudgetRecord.ofCents(income, food, rent, travel, study, entertainment);
+
+                expensesLabel.setText("Total Expenses: $" + String.format("%.2f", draft.getTotalExpenses()));
+                savingsLabel.setText("Savings: $" + String.format("%.2f", draft.getSavings()));
                 
-                if (savings > 0) {
+                if (draft.getSavingsCents() > 0) {
                     savingsLabel.setForeground(AppColors.SUCCESS);
                     messageLabel.setText("Great job! You're saving money!");
                     messageLabel.setForeground(AppColors.SUCCESS);
@@ -860,21 +1153,30 @@ class MainFrame extends JFrame {
                 panel.revalidate();
                 panel.repaint();
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(panel, "Please enter valid numbers", "Error", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(panel, "Please enter valid numbers\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
 
         saveBtn.addActionListener(e -> {
             try {
-                double income = parseDouble(incomeField.getText());
-                double food = parseDouble(foodField.getText());
-                double rent = parseDouble(rentField.getText());
-                double travel = parseDouble(travelField.getText());
-                double study = parseDouble(studyField.getText());
-                double entertainment = parseDouble(entertainmentField.getText());
-
-                BudgetRecord record = new BudgetRecord(income, food, rent, travel, study, entertainment);
+                long income = parseCents(incomeField.getText());
+                long food = parseCents(foodField.getText());
+                long rent = parseCents(rentField.getText());
+                long travel = parseCents(travelField.getText());
+                long study = parseCents(studyField.getText());
+                long entertainment = parseCents(entertainmentField.getText());
+
+                BudgetRecord record = BudgetRecord.ofCents(income, food, rent, travel, study, entertainment);
                 budgetRecords.add(record);
+                fingerprints.add(RecordFingerprints.fingerprint(budgetRecords, budgetRecords.size() - 1));
+                aggregates.add(budgetRecords, budgetRecords.size() - 1);
+                changes.appended(budgetRecords.size() - 1);
+                saveHistory(budgetRecords.size() - 1);
+
+                syncLabel.setForeground(AppColors.TEXT_SECONDARY);
+                syncLabel.setText("Syncing to database...");
+                budgetSync.submit(userId, record).whenComplete((status, error) ->
+                    SwingUtilities.invokeLater(() -> showSyncStatus(syncLabel, status, error)));
 
                 JOptionPane.showMessageDialog(panel, "Budget record saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 
@@ -888,9 +1190,6 @@ class MainFrame extends JFrame {
                 resultPanel.setVisible(false);
                 panel.revalidate();
                 panel.repaint();
-                
-                // Refresh table if it exists
-                refreshTableData();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(panel, "Please calculate first", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -901,6 +1200,7 @@ class MainFrame extends JFrame {
         buttonsPanel.add(calculateBtn);
         buttonsPanel.add(saveBtn);
         buttonsPanel.add(backBtn);
+        buttonsPanel.add(syncLabel);
 
         gbc.gridx = 0;
         gbc.gridy = 6;
@@ -914,6 +1214,29 @@ class MainFrame extends JFrame {
         return panel;
     }
 
+    private void showSyncStatus(JLabel syncLabel, BudgetWriteBehind.SyncStatus status, Throwable error) {
+        if (error != null) {
+            syncLabel.setForeground(AppColors.DANGER);
+            syncLabel.setText("Not synced: " + error.getMessage());
+        } else if (status == BudgetWriteBehind.SyncStatus.SYNCED) {
+            syncLabel.setForeground(AppColors.SUCCESS);
+            syncLabel.setText("Synced");
+            showMonthFromDatabase(syncLabel);
+        } else {
+            syncLabel.setForeground(AppColors.TEXT_SECONDARY);
+            syncLabel.setText("Saved offline, will sync when the database is reachable");
+        }
+    }
+
+    // This month's totals as the database has them, through the rollup cache
+    private void showMonthFromDatabase(JLabel syncLabel) {
+        YearMonth month = YearMonth.now();
+        tasks.submit("month-rollup", "Reading " + month + " totals", t -> MonthlyRollupCache.shared().get(userId, month),
+            rollup -> syncLabel.setText(String.format("Synced. %s so far: $%s income, $%s expenses",
+                month, Money.format(rollup.getIncomeCents()), Money.format(rollup.getExpenseCents()))),
+            error -> System.err.println("Could not read monthly totals: " + error.getMessage()));
+    }
+
     private JTextField createInputField(String placeholder) {
         JTextField field = new JTextField(15);
         field.setFont(AppFonts.BODY);
@@ -939,9 +1262,14 @@ class MainFrame extends JFrame {
         panel.add(field, gbc);
     }
 
-    private double parseDouble(String text) throws NumberFormatException {
-        if (text.isEmpty()) return 0.0;
-        return Double.parseDouble(text);
+    // Accepts "$1,234.50" style amounts in whole cents; blank fields count as zero
+    private long parseCents(String text) throws NumberFormatException {
+        if (text.trim().isEmpty()) return 0;
+        try {
+            return Money.checkAmount(AmountParser.parseCents(text));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException(e.getMessage());
+        }
     }
 
     // Records Panel
@@ -960,7 +1288,9 @@ class MainFrame extends JFrame {
         toolbar.setBorder(new EmptyBorder(10, 20, 10, 20));
 
         ModernButton exportBtn = new ModernButton("Export CSV", AppColors.SUCCESS);
+        exportBtn.setName("exportBtn");
         ModernButton refreshBtn = new ModernButton("Refresh", AppColors.PRIMARY);
+        refreshBtn.setName("refreshBtn");
 
         exportBtn.addActionListener(e -> exportToCSV());
         refreshBtn.addActionListener(e -> refreshTableData());
@@ -968,25 +1298,18 @@ class MainFrame extends JFrame {
         toolbar.add(refreshBtn);
         toolbar.add(exportBtn);
 
-        // Table
-        String[] columns = {"Date", "Income", "Food", "Rent", "Travel", "Study", "Entertainment", "Total Expenses", "Savings"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Table, told about new rows by the change bus
+        tableModel = new BudgetTableModel(budgetRecords);
+        changes.subscribe(change -> tableModel.syncWithStore());
 
         recordsTable = new JTable(tableModel);
+        recordsTable.setDefaultRenderer(Double.class, new BudgetTableModel.CurrencyRenderer());
         recordsTable.setFont(AppFonts.BODY);
         recordsTable.setRowHeight(30);
         recordsTable.setGridColor(AppColors.TEXT_SECONDARY);
         recordsTable.setSelectionBackground(AppColors.PRIMARY);
         recordsTable.setSelectionForeground(Color.WHITE);
 
-        // Populate table
-        refreshTableData();
-
         JScrollPane scrollPane = new JScrollPane(recordsTable);
         scrollPane.setBackground(Color.WHITE);
         scrollPane.getViewport().setBackground(Color.WHITE);
@@ -1022,21 +1345,7 @@ class MainFrame extends JFrame {
 
     private void refreshTableData() {
         if (tableModel != null) {
-            tableModel.setRowCount(0);
-            for (BudgetRecord record : budgetRecords) {
-                Object[] row = {
-                    record.getDate(),
-                    String.format("$%.2f", record.getIncome()),
-                    String.format("$%.2f", record.getFood()),
-                    String.format("$%.2f", record.getRent()),
-                    String.format("$%.2f", record.getTravel()),
-                    String.format("$%.2f", record.getStudy()),
-                    String.format("$%.2f", record.getEntertainment()),
-                    String.format("$%.2f", record.getTotalExpenses()),
-                    String.format("$%.2f", record.getSavings())
-                };
-                tableModel.addRow(row);
-            }
+            tableModel.syncWithStore();
         }
     }
 
@@ -1045,6 +1354,10 @@ class MainFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "No records to export", "Info", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
+        if (tasks.isRunning("export")) {
+            JOptionPane.showMessageDialog(this, "An export is already running.", "Export", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
 
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Budget Data");
@@ -1053,51 +1366,40 @@ class MainFrame extends JFrame {
         int result = fileChooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                // Write header
-                writer.println("Date,Income,Food,Rent,Travel,Study,Entertainment,Total Expenses,Savings");
-                
-                // Write data
-                for (BudgetRecord record : budgetRecords) {
-                    writer.printf("%s,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
-                        record.getDate(),
-                        record.getIncome(),
-                        record.getFood(),
-                        record.getRent(),
-                        record.getTravel(),
-                        record.getStudy(),
-                        record.getEntertainment(),
-                        record.getTotalExpenses(),
-                        record.getSavings()
-                    );
-                }
-                
-                JOptionPane.showMessageDialog(this, 
-                    "Data exported successfully to " + file.getName(), 
-                    "Export Complete", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, 
-                    "Error exporting data: " + e.getMessage(), 
-                    "Export Error", 
-                    JOptionPane.ERROR_MESSAGE);
+            // Rows below this count are never moved by later appends, so the task can read them
+            int rows = budgetRecords.size();
+            BackgroundTaskRunner.BackgroundTask task = tasks.submit("export", "Exporting " + file.getName(), t -> {
+                // Same bytes as the old printf loop; a .gz name writes a compressed file
+                BudgetCsvExporter exporter = new BudgetCsvExporter(file.getName().toLowerCase().endsWith(".gz"));
+                t.onCancel(exporter::cancel);
+                exporter.export(budgetRecords, rows, file, (written, total) -> t.setProgress((int) (written * 100L / total)));
+                return file;
+            }, written -> JOptionPane.showMessageDialog(this, 
+                "Data exported successfully to " + written.getName(), 
+                "Export Complete", 
+                JOptionPane.INFORMATION_MESSAGE), error -> JOptionPane.showMessageDialog(this, 
+                "Error exporting data: " + error.getMessage(), 
+                "Export Error", 
+                JOptionPane.ERROR_MESSAGE));
+            if (task == null) {
+                showBusy("Export");
             }
         }
     }
 
     // Navigation methods
     private void showDashboard() {
-        cardLayout.show(contentPanel, "dashboard");
+        cards.show("dashboard");
         highlightSidebarButton(dashboardBtn);
     }
 
     private void showAddBudget() {
-        cardLayout.show(contentPanel, "addBudget");
+        cards.show("addBudget");
         highlightSidebarButton(addBudgetBtn);
     }
 
     private void showRecords() {
-        cardLayout.show(contentPanel, "records");
+        cards.show("records");
         highlightSidebarButton(recordsBtn);
         refreshTableData(); // Refresh when showing records
     }
@@ -1113,86 +1415,85 @@ class MainFrame extends JFrame {
         activeButton.setBackground(AppColors.PRIMARY);
         activeButton.setContentAreaFilled(true);
     }
-// Inside the MainFrame class...
-
-// FINAL, CORRECTED DBConnection CLASS
-
-public class DBConnection {
-    // Correct URL for Named Instance (SQLEXPRESS)
-    private static final String URL = "jdbc:sqlserver://LAPTOP-4JFN9RFR;instanceName=SQLEXPRESS;databaseName=BudgetPlannerDB;user=budgetUser;password=StrongPassword123;encrypt=false;trustServerCertificate=true;";
-    private static final String USER = "budgetUser"; 
-    private static final String PASSWORD = "StrongPassword123"; 
 
-    public static Connection getConnection() {
-        try {
-            // Step 1: Load the JDBC Driver Class (essential for some environments)
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-            
-            // Step 2: Establish the connection
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("✅ Connected to SQL Server!");
-            return conn;
-        } catch (ClassNotFoundException e) {
-            System.err.println("❌ SQL Server JDBC Driver not found. Check your classpath.");
-            e.printStackTrace();
-            return null;
-        } catch (SQLException e) {
-            System.err.println("❌ Connection failed! Check URL, user/pass, and SQL Server Browser service.");
-            e.printStackTrace();
-            return null;
-        }
-    }
-}
-public void addTransaction(int userId, String category, double amount, String type) {
-    String sql = "INSERT INTO Transactions(user_id, category, amount, type) VALUES (?, ?, ?, ?)";
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public void addTransaction(int userId, String category, double amount, String type) {
+        BackgroundTaskRunner.BackgroundTask task = tasks.submit(null, "Saving transaction", t -> {
+            String sql = "INSERT INTO Transactions(user_id, category, amount, type) VALUES (?, ?, ?, ?)";
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
         
-        stmt.setInt(1, userId);
-        stmt.setString(2, category);
-        stmt.setDouble(3, amount);
-        stmt.setString(4, type);
-        stmt.executeUpdate();
+                stmt.setInt(1, userId);
+                stmt.setString(2, category);
+                stmt.setDouble(3, amount);
+                stmt.setString(4, type);
+                stmt.executeUpdate();
+                MonthlyRollupCache.shared().invalidate(userId, YearMonth.now());
         
-        System.out.println("✅ Transaction added successfully!");
-    } catch (SQLException e) {
-        e.printStackTrace();
+                System.out.println("✅ Transaction added successfully!");
+            }
+            return null;
+        }, null, Throwable::printStackTrace);
+        if (task == null) {
+            showBusy("Saving the transaction");
+        }
     }
-}
-
-
-public void saveBudgetToDatabase(int userId, double income, double food, double rent, double travel, double study, double entertainment) {
-    // Note: The SQL is for a single transaction, we'll execute it multiple times as a batch
-    String sql = "INSERT INTO Transactions (user_id, category, amount, type, transaction_date) VALUES (?, ?, ?, ?, GETDATE())";
 
-    try (Connection conn = DBConnection.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-        // 1. Add Income to Batch
-        stmt.setInt(1, userId);
-        stmt.setString(2, "Income");
-        stmt.setDouble(3, income);
-        stmt.setString(4, "income");
-        stmt.addBatch(); // <-- Add to the batch
-
-        // 2. Add Expenses to Batch
-        String[] categories = {"Food", "Rent", "Travel", "Study", "Entertainment"};
-        double[] values = {food, rent, travel, study, entertainment};
+    public void saveBudgetToDatabase(int userId, double income, double food, double rent, double travel, double study, double entertainment) {
+        BackgroundTaskRunner.BackgroundTask task = tasks.submit(null, "Saving budget", t -> {
+            // Note: The SQL is for a single transaction, we'll execute it multiple times as a batch
+            String sql = "INSERT INTO Transactions (user_id, category, amount, type, transaction_date) VALUES (?, ?, ?, ?, GETDATE())";
+
+            long start = System.nanoTime();
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                // 1. Add Income to Batch
+                stmt.setInt(1, userId);
+                stmt.setString(2, "Income");
+                stmt.setDouble(3, income);
+                stmt.setString(4, "income");
+                stmt.addBatch(); // <-- Add to the batch
+
+                // 2. Add Expenses to Batch
+                String[] categories = {"Food", "Rent", "Travel", "Study", "Entertainment"};
+                double[] values = {food, rent, travel, study, entertainment};
+
+                for (int i = 0; i < categories.length; i++) {
+                    // Reset parameters for the next record
+                    stmt.setInt(1, userId);
+                    stmt.setString(2, categories[i]);
+                    stmt.setDouble(3, values[i]);
+                    stmt.setString(4, "expense");
+                    stmt.addBatch(); // <-- Add to the batch
+                }
 
-        for (int i = 0; i < categories.length; i++) {
-            // Reset parameters for the next record
-            stmt.setInt(1, userId);
-            stmt.setString(2, categories[i]);
-            stmt.setDouble(3, values[i]);
-            stmt.setString(4, "expense");
-            stmt.addBatch(); // <-- Add to the batch
+                // 3. Execute all statements in the batch
+                stmt.executeBatch(); 
+                BudgetWriteBehind.BATCH_NANOS.recordSince(start);
+                BudgetWriteBehind.BATCH_ROWS.add(categories.length + 1);
+                MonthlyRollupCache.shared().invalidate(userId, YearMonth.now()); // GETDATE() month
+        
+                System.out.println("✅ Budget and transactions saved successfully in a batch!");
+            }
+            return null;
+        }, null, Throwable::printStackTrace);
+        if (task == null) {
+            showBusy("Saving the budget");
         }
+    }
 
-        // 3. Execute all statements in the batch
-        stmt.executeBatch(); 
-        
-        System.out.println("✅ Budget and transactions saved successfully in a batch!");
-    } catch (SQLException e) {
-        e.printStackTrace();
+    // Writes a whole batch of records (e.g. a file import) as multi-row inserts, one commit per chunk.
+    // The shared writer queues it behind any earlier import and journals what it cannot commit,
+    // so it survives a logout or exit.
+    public void saveRecordsToDatabase(int userId, List<? extends BudgetRecord> records) {
+        budgetSync.submitAll(userId, records).whenComplete((status, error) -> {
+            if (error != null) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, 
+                    "Error saving records: " + error.getMessage(), 
+                    "Database Error", 
+                    JOptionPane.ERROR_MESSAGE));
+            }
+        });
     }
 }
@@ -0,0 +1,142 @@
+package budgetplannerapp;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Budget Query
+// An immutable filter over budget history: an optional date range, amount bounds per
+// category (the BudgetAggregates category numbers, so totals and savings work too)
+// and an optional row predicate for anything else. BudgetQueryIndex answers it.
+class BudgetQuery {
+    // Extra conditions are tested straight against the store columns
+    public interface RowPredicate {
+        boolean test(BudgetRecordStore store, int row);
+    }
+
+    private static final BudgetQuery ALL = new BudgetQuery(false, 0, 0, null, null, null);
+
+    private final boolean dateBounded;
+    private final int fromDay;
+    private final int toDay;
+    private final double[] minAmounts;
+    private final double[] maxAmounts;
+    private final RowPredicate predicate;
+
+    private BudgetQuery(boolean dateBounded, int fromDay, int toDay,
+                        double[] minAmounts, double[] maxAmounts, RowPredicate predicate) {
+        this.dateBounded = dateBounded;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.minAmounts = minAmounts;
+        this.maxAmounts = maxAmounts;
+        this.predicate = predicate;
+    }
+
+    public static BudgetQuery all() {
+        return ALL;
+    }
+
+    public static BudgetQuery year(int year) {
+        return ALL.between(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    public static BudgetQuery quarter(int year, int quarter) {
+        if (quarter < 1 || quarter > 4) {
+            throw new IllegalArgumentException("Quarter must be 1-4: " + quarter);
+        }
+        LocalDate first = LocalDate.of(year, quarter * 3 - 2, 1);
+        return ALL.between(first, first.plusMonths(3).minusDays(1));
+    }
+
+    // Both ends inclusive; rows with unreadable dates never match a date range
+    public BudgetQuery between(LocalDate from, LocalDate to) {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        if (dateBounded) {
+            first = Math.max(first, fromDay);
+            last = Math.min(last, toDay);
+        }
+        return new BudgetQuery(true, first, last, minAmounts, maxAmounts, predicate);
+    }
+
+    public BudgetQuery atLeast(int category, double amount) {
+        return amountBetween(category, amount, Double.POSITIVE_INFINITY);
+    }
+
+    public BudgetQuery atMost(int category, double amount) {
+        return amountBetween(category, Double.NEGATIVE_INFINITY, amount);
+    }
+
+    // Both bounds inclusive
+    public BudgetQuery amountBetween(int category, double min, double max) {
+        if (category < 0 || category >= BudgetAggregates.CATEGORIES) {
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+        double[] mins = minAmounts == null ? filled(Double.NEGATIVE_INFINITY) : minAmounts.clone();
+        double[] maxs = maxAmounts == null ? filled(Double.POSITIVE_INFINITY) : maxAmounts.clone();
+        mins[category] = Math.max(mins[category], min);
+        maxs[category] = Math.min(maxs[category], max);
+        return new BudgetQuery(dateBounded, fromDay, toDay, mins, maxs, predicate);
+    }
+
+    public BudgetQuery where(RowPredicate condition) {
+        RowPredicate combined = predicate == null ? condition
+            : (store, row) -> predicate.test(store, row) && condition.test(store, row);
+        return new BudgetQuery(dateBounded, fromDay, toDay, minAmounts, maxAmounts, combined);
+    }
+
+    private static double[] filled(double value) {
+        double[] values = new double[BudgetAggregates.CATEGORIES];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    public boolean isDateBounded() { return dateBounded; }
+    public int getFromDay() { return fromDay; }
+    public int getToDay() { return toDay; }
+
+    public boolean hasAmountBounds(int category) {
+        return minAmounts != null
+            && (minAmounts[category] != Double.NEGATIVE_INFINITY || maxAmounts[category] != Double.POSITIVE_INFINITY);
+    }
+
+    public double getMinAmount(int category) {
+        return minAmounts == null ? Double.NEGATIVE_INFINITY : minAmounts[category];
+    }
+
+    public double getMaxAmount(int category) {
+        return maxAmounts == null ? Double.POSITIVE_INFINITY : maxAmounts[category];
+    }
+
+    // The full check for one row; indexes only narrow down which rows get here
+    public boolean matches(BudgetRecordStore store, int row) {
+        if (dateBounded) {
+            int day = store.getEpochDay(row);
+            if (day == BudgetRecordStore.IRREGULAR_DATE || day < fromDay || day > toDay) {
+                return false;
+            }
+        }
+        if (minAmounts != null) {
+            for (int category = 0; category < BudgetAggregates.CATEGORIES; category++) {
+                double min = minAmounts[category];
+                double max = maxAmounts[category];
+                if (min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double value = amount(store, category, row);
+                if (!(value >= min && value <= max)) {
+                    return false;
+                }
+            }
+        }
+        return predicate == null || predicate.test(store, row);
+    }
+
+    static double amount(BudgetRecordStore store, int category, int row) {
+        switch (category) {
+            case BudgetAggregates.TOTAL_EXPENSES: return store.getTotalExpenses(row);
+            case BudgetAggregates.SAVINGS: return store.getSavings(row);
+            default: return store.getAmount(category, row);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package budgetplannerapp;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Budget Query Index
+// Answers BudgetQuery filters without scanning the whole store. Rows are indexed by
+// epoch day (sorted, binary searched for ranges) and, on first use, by amount per
+// category (rows grouped into ~256 quantile buckets, so a threshold only touches the
+// buckets it overlaps). The query runs against whichever index narrows it down most;
+// every candidate is still checked in full. Rows appended after the last build are
+// scanned as a tail until there are enough of them to be worth re-indexing.
+class BudgetQueryIndex {
+    private static final int BUCKETS = 256;
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final int MIN_TAIL_ROWS = 64 * 1024;
+    private static final int TAIL_FRACTION = 8;
+
+    private final BudgetRecordStore store;
+    private volatile Index index;
+
+    public BudgetQueryIndex(BudgetRecordStore store) {
+        this.store = store;
+        this.index = new Index(store.getGeneration(), 0, new int[0], null);
+    }
+
+    // Matching row numbers, in date order when the date index is used
+    public IntStream rows(BudgetQuery query) {
+        return StreamSupport.intStream(
+            Spliterators.spliteratorUnknownSize(cursor(query), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+            false);
+    }
+
+    public Stream<BudgetRecord> records(BudgetQuery query) {
+        return rows(query).mapToObj(store::get);
+    }
+
+    public void forEach(BudgetQuery query, IntConsumer action) {
+        cursor(query).forEachRemaining(action);
+    }
+
+    public int count(BudgetQuery query) {
+        Cursor cursor = cursor(query);
+        int count = 0;
+        while (cursor.hasNext()) {
+            cursor.nextInt();
+            count++;
+        }
+        return count;
+    }
+
+    // Which index a query would use and how many rows it would check
+    public String explain(BudgetQuery query) {
+        Cursor cursor = cursor(query);
+        return cursor.plan + ", " + cursor.candidates() + " candidate rows";
+    }
+
+    private Cursor cursor(BudgetQuery query) {
+        int size = store.size();
+        Index current = refresh(size);
+
+        // Start from a full scan and take the narrowest index that applies
+        int[] map = null;
+        int from = 0;
+        int to = current.rows;
+        String plan = "full scan";
+
+        if (query.isDateBounded()) {
+            int lo = lowerBound(current.days, query.getFromDay());
+            int hi = query.getToDay() < query.getFromDay() ? lo : upperBound(current.days, query.getToDay());
+            map = current.rowsByDay;
+            from = lo;
+            to = hi;
+            plan = "date index";
+        }
+        for (int category = 0; category < BudgetAggregates.CATEGORIES; category++) {
+            if (!query.hasAmountBounds(category) || to - from <= MIN_TAIL_ROWS / 64) {
+                continue;
+            }
+            AmountIndex amounts = current.amounts(store, category);
+            int lo = amounts.bucketStart[amounts.bucket(query.getMinAmount(category))];
+            int hi = amounts.bucketStart[amounts.bucket(query.getMaxAmount(category)) + 1];
+            if (query.getMaxAmount(category) < query.getMinAmount(category)) {
+                hi = lo;
+            }
+            if (hi - lo < to - from) {
+                map = amounts.rows;
+                from = lo;
+                to = hi;
+                plan = "amount index on category " + category;
+            }
+        }
+        return new Cursor(query, map, from, to, current.rows, size, plan);
+    }
+
+    private Index refresh(int size) {
+        Index current = index;
+        int generation = store.getGeneration();
+        if (current.generation == generation && size >= current.rows
+                && size - current.rows <= Math.max(MIN_TAIL_ROWS, current.rows / TAIL_FRACTION)) {
+            return current;
+        }
+        synchronized (this) {
+            current = index;
+            if (current.generation != generation || size < current.rows
+                    || size - current.rows > Math.max(MIN_TAIL_ROWS, current.rows / TAIL_FRACTION)) {
+                current = buildDateIndex(generation, size);
+                index = current;
+            }
+            return current;
+        }
+    }
+
+    private Index buildDateIndex(int generation, int rows) {
+        int[] days = new int[rows];
+        boolean sorted = true;
+        for (int row = 0; row < rows; row++) {
+            days[row] = store.getEpochDay(row);
+            if (row > 0 && days[row] < days[row - 1]) {
+                sorted = false;
+            }
+        }
+        if (sorted) {
+            // History is usually entered in date order; row numbers are then the index
+            return new Index(generation, rows, days, null);
+        }
+        long[] keys = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            keys[row] = ((long) days[row] << 32) | row;
+        }
+        Arrays.parallelSort(keys);
+        int[] rowsByDay = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            days[i] = (int) (keys[i] >> 32);
+            rowsByDay[i] = (int) keys[i];
+        }
+        return new Index(generation, rows, days, rowsByDay);
+    }
+
+    // First position whose day is >= key
+    private static int lowerBound(int[] days, int key) {
+        int lo = 0;
+        int hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // First position whose day is > key
+    private static int upperBound(int[] days, int key) {
+        int lo = 0;
+        int hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] <= key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // One build of the indexes over rows [0, rows)
+    private static class Index {
+        final int generation;
+        final int rows;
+        final int[] days;
+        final int[] rowsByDay; // null when rows are already in date order
+        private final AmountIndex[] amounts = new AmountIndex[BudgetAggregates.CATEGORIES];
+
+        Index(int generation, int rows, int[] days, int[] rowsByDay) {
+            this.generation = generation;
+            this.rows = rows;
+            this.days = days;
+            this.rowsByDay = rowsByDay;
+        }
+
+        synchronized AmountIndex amounts(BudgetRecordStore store, int category) {
+            if (amounts[category] == null) {
+                amounts[category] = new AmountIndex(store, category, rows);
+            }
+            return amounts[category];
+        }
+    }
+
+    // Rows grouped by amount bucket; bucket b holds rows[bucketStart[b] .. bucketStart[b + 1])
+    // in row order. Bounds come from a sample, so buckets hold roughly equal row counts.
+    private static class AmountIndex {
+        final double[] bounds;
+        final int[] bucketStart;
+        final int[] rows;
+
+        AmountIndex(BudgetRecordStore store, int category, int rowCount) {
+            bounds = sampleBounds(store, category, rowCount);
+            int buckets = bounds.length + 1;
+            short[] bucketOf = new short[rowCount];
+            int[] counts = new int[buckets + 1];
+            for (int row = 0; row < rowCount; row++) {
+                int bucket = bucket(BudgetQuery.amount(store, category, row));
+                bucketOf[row] = (short) bucket;
+                counts[bucket + 1]++;
+            }
+            for (int b = 0; b < buckets; b++) {
+                counts[b + 1] += counts[b];
+            }
+            bucketStart = counts.clone();
+            rows = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                rows[counts[bucketOf[row]]++] = row;
+            }
+        }
+
+        private static double[] sampleBounds(BudgetRecordStore store, int category, int rowCount) {
+            int step = Math.max(1, rowCount / SAMPLE_SIZE);
+            double[] sample = new double[(rowCount + step - 1) / step];
+            int n = 0;
+            for (int row = 0; row < rowCount; row += step) {
+                double value = BudgetQuery.amount(store, category, row);
+                if (!Double.isNaN(value)) {
+                    sample[n++] = value;
+                }
+            }
+            Arrays.sort(sample, 0, n);
+            double[] bounds = new double[BUCKETS - 1];
+            int count = 0;
+            for (int i = 1; i < BUCKETS && n > 0; i++) {
+                double bound = sample[(int) ((long) i * n / BUCKETS)];
+                if (count == 0 || bound > bounds[count - 1]) {
+                    bounds[count++] = bound;
+                }
+            }
+            return Arrays.copyOf(bounds, count);
+        }
+
+        // Number of bounds <= value; NaN and +Infinity land in the last bucket
+        int bucket(double value) {
+            if (Double.isNaN(value)) {
+                return bounds.length;
+            }
+            int lo = 0;
+            int hi = bounds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[mid] <= value) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    // Walks candidates[from, to) (row numbers themselves when map is null), then the
+    // unindexed tail [tailFrom, tailTo), yielding rows that pass the full query
+    private class Cursor implements PrimitiveIterator.OfInt {
+        private final BudgetQuery query;
+        private final int[] map;
+        private final int to;
+        private final int tailFrom;
+        private final int tailTo;
+        private final int indexedCandidates;
+        final String plan;
+        private int position;
+        private int tailPosition;
+        private int next = -1;
+
+        Cursor(BudgetQuery query, int[] map, int from, int to, int tailFrom, int tailTo, String plan) {
+            this.query = query;
+            this.map = map;
+            this.position = from;
+            this.to = to;
+            this.tailFrom = tailFrom;
+            this.tailPosition = tailFrom;
+            this.tailTo = tailTo;
+            this.indexedCandidates = to - from;
+            this.plan = plan;
+        }
+
+        int candidates() {
+            return indexedCandidates + (tailTo - tailFrom);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next < 0) {
+                int row;
+                if (position < to) {
+                    row = map == null ? position : map[position];
+                    position++;
+                } else if (tailPosition < tailTo) {
+                    row = tailPosition++;
+                } else {
+                    return false;
+                }
+                if (query.matches(store, row)) {
+                    next = row;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = next;
+            next = -1;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package budgetplannerapp;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Columnar Budget Record Store
+// Keeps one primitive column per amount (whole cents, see Money) and the date as an
+// epoch day, grown in fixed-size chunks so appends never copy existing rows. get()
+// hands out small BudgetRecord views that read straight from the columns.
+// Appends happen on one thread, but chunks never move once written, and size is
+// volatile and only written after the columns (and any irregular date) of the new
+// rows, so a background task that reads size() first may read the rows below it
+// while more rows are being added.
+class BudgetRecordStore extends AbstractList<BudgetRecord> implements RandomAccess {
+    public static final int INCOME = 0;
+    public static final int FOOD = 1;
+    public static final int RENT = 2;
+    public static final int TRAVEL = 3;
+    public static final int STUDY = 4;
+    public static final int ENTERTAINMENT = 5;
+    public static final int AMOUNT_COLUMNS = 6;
+
+    // Rows whose date is not a plain yyyy-MM-dd keep the original text on the side
+    public static final int IRREGULAR_DATE = Integer.MIN_VALUE;
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    private int[][] dates = new int[0][];
+    private long[][][] amounts = new long[AMOUNT_COLUMNS][0][];
+    private final Map<Integer, String> irregularDates = new ConcurrentHashMap<>();
+    private volatile int size = 0;
+    private final int generation = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Heap held by the column chunks, plus a rough 64 bytes per irregular date
+    public long estimateBytes() {
+        return (long) dates.length * CHUNK_ROWS * (Integer.BYTES + AMOUNT_COLUMNS * Long.BYTES)
+            + irregularDates.size() * 64L;
+    }
+
+    // Would change if rows were ever removed, so indexes know to start over; the
+    // store is append-only today (see clear()), so it stays 0
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public BudgetRecord get(int row) {
+        checkRow(row);
+        return new RowView(this, row);
+    }
+
+    @Override
+    public boolean add(BudgetRecord record) {
+        appendCents(record.getDate(), record.getIncomeCents(), record.getFoodCents(), record.getRentCents(),
+            record.getTravelCents(), record.getStudyCents(), record.getEntertainmentCents());
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends BudgetRecord> records) {
+        if (records instanceof BudgetRecordStore) {
+            appendAll((BudgetRecordStore) records);
+            return !records.isEmpty();
+        }
+        return super.addAll(records);
+    }
+
+    // Rows are never removed: swapping the chunks out would leave a reader that had
+    // already read size() indexing past their end. Build a new store instead.
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("BudgetRecordStore is append-only");
+    }
+
+    // Amounts in dollars are rounded to the nearest cent
+    public int append(String date, double income, double food, double rent, double travel, double study, double entertainment) {
+        return appendCents(date, Money.toCents(income), Money.toCents(food), Money.toCents(rent),
+            Money.toCents(travel), Money.toCents(study), Money.toCents(entertainment));
+    }
+
+    public int append(int epochDay, double income, double food, double rent, double travel, double study, double entertainment) {
+        return appendCents(epochDay, Money.toCents(income), Money.toCents(food), Money.toCents(rent),
+            Money.toCents(travel), Money.toCents(study), Money.toCents(entertainment));
+    }
+
+    public int appendCents(String date, long income, long food, long rent, long travel, long study, long entertainment) {
+        int epochDay = parseEpochDay(date);
+        if (epochDay != IRREGULAR_DATE) {
+            return appendCents(epochDay, income, food, rent, travel, study, entertainment);
+        }
+        // Before the row is published, so readers never see it without its text
+        int row = size;
+        irregularDates.put(row, date == null ? "" : date);
+        try {
+            return appendCents(epochDay, income, food, rent, travel, study, entertainment);
+        } catch (RuntimeException e) {
+            irregularDates.remove(row);
+            throw e;
+        }
+    }
+
+    public int appendCents(int epochDay, long income, long food, long rent, long travel, long study, long entertainment) {
+        Money.checkAmount(income);
+        Money.checkAmount(food);
+        Money.checkAmount(rent);
+        Money.checkAmount(travel);
+        Money.checkAmount(study);
+        Money.checkAmount(entertainment);
+        int row = size;
+        int chunk = row >>> CHUNK_BITS;
+        if (chunk == dates.length) {
+            growChunk();
+        }
+        int offset = row & CHUNK_MASK;
+        dates[chunk][offset] = epochDay;
+        amounts[INCOME][chunk][offset] = income;
+        amounts[FOOD][chunk][offset] = food;
+        amounts[RENT][chunk][offset] = rent;
+        amounts[TRAVEL][chunk][offset] = travel;
+        amounts[STUDY][chunk][offset] = study;
+        amounts[ENTERTAINMENT][chunk][offset] = entertainment;
+        size = row + 1;
+        modCount++;
+        return row;
+    }
+
+    public void appendAll(BudgetRecordStore other) {
+        appendRows(other, 0, other.size);
+    }
+
+    // Copies rows [from, to) of another store onto the end of this one
+    public void appendRows(BudgetRecordStore other, int from, int to) {
+        int count = to - from;
+        int base = size;
+        int row = base;
+        for (int copied = 0; copied < count; ) {
+            int chunk = row >>> CHUNK_BITS;
+            if (chunk == dates.length) {
+                growChunk();
+            }
+            int offset = row & CHUNK_MASK;
+            int srcChunk = (from + copied) >>> CHUNK_BITS;
+            int srcOffset = (from + copied) & CHUNK_MASK;
+            int length = Math.min(count - copied, Math.min(CHUNK_ROWS - offset, CHUNK_ROWS - srcOffset));
+
+            System.arraycopy(other.dates[srcChunk], srcOffset, dates[chunk], offset, length);
+            for (int column = 0; column < AMOUNT_COLUMNS; column++) {
+                System.arraycopy(other.amounts[column][srcChunk], srcOffset, amounts[column][chunk], offset, length);
+            }
+            row += length;
+            copied += length;
+        }
+        // Look up short ranges row by row rather than walking every irregular date
+        if (count < other.irregularDates.size()) {
+            for (int source = from; source < to; source++) {
+                String date = other.irregularDates.get(source);
+                if (date != null) {
+                    irregularDates.put(base + source - from, date);
+                }
+            }
+        } else {
+            for (Map.Entry<Integer, String> entry : other.irregularDates.entrySet()) {
+                int source = entry.getKey();
+                if (source >= from && source < to) {
+                    irregularDates.put(base + source - from, entry.getValue());
+                }
+            }
+        }
+        size = row;
+        modCount++;
+    }
+
+    // Bulk append from column buffers, e.g. a memory-mapped snapshot block
+    public void appendColumns(IntBuffer dateColumn, LongBuffer[] centColumns, int count) {
+        int row = size;
+        for (int copied = 0; copied < count; ) {
+            int chunk = row >>> CHUNK_BITS;
+            if (chunk == dates.length) {
+                growChunk();
+            }
+            int offset = row & CHUNK_MASK;
+            int length = Math.min(count - copied, CHUNK_ROWS - offset);
+
+            dateColumn.get(dates[chunk], offset, length);
+            for (int column = 0; column < AMOUNT_COLUMNS; column++) {
+                long[] target = amounts[column][chunk];
+                centColumns[column].get(target, offset, length);
+                for (int i = offset; i < offset + length; i++) {
+                    Money.checkAmount(target[i]);
+                }
+            }
+            row += length;
+            copied += length;
+        }
+        size = row;
+        modCount++;
+    }
+
+    // Same for columns in dollars (older snapshots), rounded to the nearest cent
+    public void appendColumns(IntBuffer dateColumn, DoubleBuffer[] amountColumns, int count) {
+        int row = size;
+        for (int copied = 0; copied < count; ) {
+            int chunk = row >>> CHUNK_BITS;
+            if (chunk == dates.length) {
+                growChunk();
+            }
+            int offset = row & CHUNK_MASK;
+            int length = Math.min(count - copied, CHUNK_ROWS - offset);
+
+            dateColumn.get(dates[chunk], offset, length);
+            for (int column = 0; column < AMOUNT_COLUMNS; column++) {
+                long[] target = amounts[column][chunk];
+                for (int i = offset; i < offset + length; i++) {
+                    target[i] = Money.toCents(amountColumns[column].get());
+                }
+            }
+            row += length;
+            copied += length;
+        }
+        size = row;
+        modCount++;
+    }
+
+    // Attaches the original text to a row appended with IRREGULAR_DATE
+    public void setIrregularDate(int row, String date) {
+        checkRow(row);
+        irregularDates.put(row, date);
+    }
+
+    // Bulk copies of one column for rows [from, from + count)
+    public void copyDates(int from, int count, IntBuffer target) {
+        checkRange(from, count);
+        for (int row = from; row < from + count; ) {
+            int offset = row & CHUNK_MASK;
+            int length = Math.min(from + count - row, CHUNK_ROWS - offset);
+            target.put(dates[row >>> CHUNK_BITS], offset, length);
+            row += length;
+        }
+    }
+
+    public void copyCents(int column, int from, int count, LongBuffer target) {
+        checkRange(from, count);
+        for (int row = from; row < from + count; ) {
+            int offset = row & CHUNK_MASK;
+            int length = Math.min(from + count - row, CHUNK_ROWS - offset);
+            target.put(amounts[column][row >>> CHUNK_BITS], offset, length);
+            row += length;
+        }
+    }
+
+    private void growChunk() {
+        int chunks = dates.length + 1;
+        dates = Arrays.copyOf(dates, chunks);
+        dates[chunks - 1] = new int[CHUNK_ROWS];
+        for (int column = 0; column < AMOUNT_COLUMNS; column++) {
+            amounts[column] = Arrays.copyOf(amounts[column], chunks);
+            amounts[column][chunks - 1] = new long[CHUNK_ROWS];
+        }
+    }
+
+    // Column accessors
+    public int getEpochDay(int row) {
+        checkRow(row);
+        return dates[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public String getDate(int row) {
+        int epochDay = getEpochDay(row);
+        if (epochDay == IRREGULAR_DATE) {
+            return irregularDates.get(row);
+        }
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    public long getCents(int column, int row) {
+        checkRow(row);
+        return amounts[column][row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    // Amounts are at most Money.MAX_CENTS, so these sums cannot overflow
+    public long getTotalExpensesCents(int row) {
+        checkRow(row);
+        int chunk = row >>> CHUNK_BITS;
+        int offset = row & CHUNK_MASK;
+        return amounts[FOOD][chunk][offset] + amounts[RENT][chunk][offset] + amounts[TRAVEL][chunk][offset]
+            + amounts[STUDY][chunk][offset] + amounts[ENTERTAINMENT][chunk][offset];
+    }
+
+    public long getSavingsCents(int row) {
+        return getCents(INCOME, row) - getTotalExpensesCents(row);
+    }
+
+    // The same values in dollars, for display and queries
+    public double getAmount(int column, int row) { return Money.toDouble(getCents(column, row)); }
+    public double getIncome(int row) { return getAmount(INCOME, row); }
+    public double getFood(int row) { return getAmount(FOOD, row); }
+    public double getRent(int row) { return getAmount(RENT, row); }
+    public double getTravel(int row) { return getAmount(TRAVEL, row); }
+    public double getStudy(int row) { return getAmount(STUDY, row); }
+    public double getEntertainment(int row) { return getAmount(ENTERTAINMENT, row); }
+    public double getTotalExpenses(int row) { return Money.toDouble(getTotalExpensesCents(row)); }
+    public double getSavings(int row) { return Money.toDouble(getSavingsCents(row)); }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for " + size + " records");
+        }
+    }
+
+    private void checkRange(int from, int count) {
+        if (from < 0 || count < 0 || from + count > size) {
+            throw new IndexOutOfBoundsException("Rows " + from + "+" + count + " out of range for " + size + " records");
+        }
+    }
+
+    // Date helpers
+    public static int parseEpochDay(String date) {
+        if (date == null) {
+            return IRREGULAR_DATE;
+        }
+        byte[] bytes = date.getBytes(StandardCharsets.ISO_8859_1);
+        return parseEpochDay(bytes, 0, bytes.length);
+    }
+
+    // Only canonical yyyy-MM-dd text is stored as an epoch day; it is exactly
+    // what LocalDate.toString() gives back, so the round trip is lossless.
+    public static int parseEpochDay(byte[] bytes, int from, int to) {
+        if (to - from != 10 || bytes[from + 4] != '-' || bytes[from + 7] != '-') {
+            return IRREGULAR_DATE;
+        }
+        int year = digits(bytes, from, 4);
+        int month = digits(bytes, from + 5, 2);
+        int day = digits(bytes, from + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return IRREGULAR_DATE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return IRREGULAR_DATE;
+        }
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Flyweight row: holds only the store and a row number
+    private static class RowView extends BudgetRecord {
+        private final BudgetRecordStore store;
+        private final int row;
+
+        RowView(BudgetRecordStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override public String getDate() { return store.getDate(row); }
+        @Override public long getIncomeCents() { return store.getCents(INCOME, row); }
+        @Override public long getFoodCents() { return store.getCents(FOOD, row); }
+        @Override public long getRentCents() { return store.getCents(RENT, row); }
+        @Override public long getTravelCents() { return store.getCents(TRAVEL, row); }
+        @Override public long getStudyCents() { return store.getCents(STUDY, row); }
+        @Override public long getEntertainmentCents() { return store.getCents(ENTERTAINMENT, row); }
+        @Override public long getTotalExpensesCents() { return store.getTotalExpensesCents(row); }
+        @Override public long getSavingsCents() { return store.getSavingsCents(row); }
+    }
+}
@@ -0,0 +1,371 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Binary Budget Snapshot
+// A file of budget history that opens by memory-mapping instead of re-parsing text.
+// Layout (little-endian):
+//   header: "BUDGSNAP", int version, int amount columns
+//   blocks: int magic, int rows, int irregular-date bytes,
+//           int[rows] epoch days, long[rows] x 6 amount columns in cents,
+//           (int row, int length, UTF-8 text) per irregular date,
+//           int CRC32 of everything after the magic
+// New rows are appended as another block, so saving never rewrites history. A block
+// cut short by a crash is ignored on load and overwritten by the next append, and so
+// is a zeroed or garbage block header at the end (a crash after the file grew but
+// before the header reached the disk). Damage is only an error when intact blocks follow.
+// Version 1 files held amounts as doubles; they still load (rounded to cents) and
+// are rewritten as version 2 on the first save.
+class BudgetSnapshot {
+    public static final int VERSION = 2;
+    private static final int DOUBLE_AMOUNTS_VERSION = 1;
+
+    private static final byte[] FILE_MAGIC = "BUDGSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_MAGIC = 0x424C4B31; // "BLK1"
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int ROW_BYTES = 4 + BudgetRecordStore.AMOUNT_COLUMNS * 8;
+    private static final int MAX_BLOCK_ROWS = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final File file;
+    private long validLength = -1;
+    private int rowsOnDisk;
+    private int versionOnDisk = VERSION;
+
+    public BudgetSnapshot(File file) {
+        this.file = file;
+    }
+
+    public static File defaultFile(int userId) {
+        return new File(new File(System.getProperty("user.home"), ".budgetplanner"), "history-" + userId + ".snapshot");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized int getRowsOnDisk() {
+        return rowsOnDisk;
+    }
+
+    // Reads every complete block; a missing file is an empty history
+    public synchronized BudgetRecordStore load() throws IOException {
+        BudgetRecordStore store = new BudgetRecordStore();
+        scan(store);
+        return store;
+    }
+
+    // Appends rows [getRowsOnDisk(), upTo) of the store this snapshot was loaded into.
+    // Calls may arrive out of order from background tasks; a stale one writes nothing.
+    public synchronized int sync(BudgetRecordStore store, int upTo) throws IOException {
+        if (validLength < 0) {
+            scan(null);
+        }
+        if (upTo <= rowsOnDisk) {
+            return 0;
+        }
+        int from = rowsOnDisk;
+        if (versionOnDisk != VERSION) {
+            BudgetSnapshot rewritten = writeFresh(store, upTo, file);
+            validLength = rewritten.validLength;
+            rowsOnDisk = upTo;
+            versionOnDisk = VERSION;
+            return upTo - from;
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop a torn block left by a crash before writing after it
+            channel.truncate(validLength);
+            long position = validLength;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (position == 0) {
+                buffer.put(FILE_MAGIC).putInt(VERSION).putInt(BudgetRecordStore.AMOUNT_COLUMNS).flip();
+                position += writeFully(channel, buffer, position);
+            }
+            for (int first = from; first < upTo; first += MAX_BLOCK_ROWS) {
+                position += writeBlock(channel, buffer, position, store, first, Math.min(upTo - first, MAX_BLOCK_ROWS));
+            }
+            channel.force(true);
+            validLength = position;
+        }
+        rowsOnDisk = upTo;
+        return upTo - from;
+    }
+
+    // Writes the whole store to a fresh file, replacing any existing one atomically
+    public static void write(BudgetRecordStore store, File target) throws IOException {
+        writeFresh(store, store.size(), target);
+    }
+
+    private static BudgetSnapshot writeFresh(BudgetRecordStore store, int rows, File target) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        Files.deleteIfExists(temp.toPath());
+        BudgetSnapshot snapshot = new BudgetSnapshot(temp);
+        snapshot.sync(store, rows);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return snapshot;
+    }
+
+    private long writeBlock(FileChannel channel, ByteBuffer buffer, long position,
+                            BudgetRecordStore store, int from, int rows) throws IOException {
+        byte[] irregular = irregularDates(store, from, rows);
+        CRC32 crc = new CRC32();
+        long start = position;
+
+        buffer.clear();
+        buffer.putInt(BLOCK_MAGIC).putInt(rows).putInt(irregular.length).flip();
+        crc.update(buffer.duplicate().position(4));
+        position += writeFully(channel, buffer, position);
+
+        for (int done = 0; done < rows; ) {
+            int count = Math.min(rows - done, WRITE_BUFFER_SIZE / 4);
+            buffer.clear();
+            store.copyDates(from + done, count, buffer.asIntBuffer());
+            buffer.limit(count * 4);
+            crc.update(buffer.duplicate());
+            position += writeFully(channel, buffer, position);
+            done += count;
+        }
+        for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+            for (int done = 0; done < rows; ) {
+                int count = Math.min(rows - done, WRITE_BUFFER_SIZE / 8);
+                buffer.clear();
+                store.copyCents(column, from + done, count, buffer.asLongBuffer());
+                buffer.limit(count * 8);
+                crc.update(buffer.duplicate());
+                position += writeFully(channel, buffer, position);
+                done += count;
+            }
+        }
+
+        crc.update(irregular);
+        position += writeFully(channel, ByteBuffer.wrap(irregular), position);
+        buffer.clear();
+        buffer.putInt((int) crc.getValue()).flip();
+        position += writeFully(channel, buffer, position);
+        return position - start;
+    }
+
+    private static byte[] irregularDates(BudgetRecordStore store, int from, int rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer entry = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = from; row < from + rows; row++) {
+            if (store.getEpochDay(row) == BudgetRecordStore.IRREGULAR_DATE) {
+                byte[] text = store.getDate(row).getBytes(StandardCharsets.UTF_8);
+                entry.clear();
+                entry.putInt(row - from).putInt(text.length);
+                out.write(entry.array());
+                out.write(text);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // Walks the file block by block, copying rows into target unless it is null
+    // A corrupt file leaves validLength unset, so sync() refuses to write over it
+    private void scan(BudgetRecordStore target) throws IOException {
+        validLength = -1;
+        rowsOnDisk = 0;
+        versionOnDisk = VERSION;
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            validLength = 0; // missing, or crashed while writing the header
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            byte[] magic = new byte[FILE_MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, FILE_MAGIC)) {
+                throw new IOException(file + " is not a budget snapshot");
+            }
+            int version = header.getInt();
+            int columns = header.getInt();
+            if ((version != VERSION && version != DOUBLE_AMOUNTS_VERSION) || columns != BudgetRecordStore.AMOUNT_COLUMNS) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+
+            long position = HEADER_SIZE;
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int block = 0;
+            while (position + BLOCK_HEADER_SIZE <= size) {
+                blockHeader.clear();
+                readFully(channel, blockHeader, position);
+                int rows = blockHeader.getInt(4);
+                int irregularBytes = blockHeader.getInt(8);
+                if (blockHeader.getInt(0) != BLOCK_MAGIC || rows < 0 || rows > MAX_BLOCK_ROWS || irregularBytes < 0) {
+                    if (!hasValidBlockAfter(channel, position + 1, size)) {
+                        break; // torn final block
+                    }
+                    throw new IOException("Corrupt snapshot block " + block + " in " + file);
+                }
+                long length = BLOCK_HEADER_SIZE + (long) rows * ROW_BYTES + irregularBytes + 4;
+                if (position + length > size) {
+                    break; // torn final block
+                }
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                CRC32 crc = new CRC32();
+                crc.update(slice(mapped, 4, (int) length - 8));
+                if ((int) crc.getValue() != mapped.getInt((int) length - 4)) {
+                    if (position + length == size) {
+                        break; // torn final block
+                    }
+                    throw new IOException("Checksum mismatch in snapshot block " + block + " of " + file);
+                }
+                if (target != null) {
+                    try {
+                        readBlock(mapped, rows, irregularBytes, target, version);
+                    } catch (ArithmeticException e) {
+                        throw new IOException("Bad amount in snapshot block " + block + " of " + file + ": " + e.getMessage(), e);
+                    }
+                }
+                position += length;
+                rowsOnDisk += rows;
+                block++;
+            }
+            validLength = position;
+            versionOnDisk = version;
+        }
+    }
+
+    private static void readBlock(ByteBuffer mapped, int rows, int irregularBytes, BudgetRecordStore target, int version) {
+        int base = target.size();
+        int offset = BLOCK_HEADER_SIZE;
+        IntBuffer dates = slice(mapped, offset, rows * 4).asIntBuffer();
+        offset += rows * 4;
+        if (version == DOUBLE_AMOUNTS_VERSION) {
+            DoubleBuffer[] amounts = new DoubleBuffer[BudgetRecordStore.AMOUNT_COLUMNS];
+            for (int column = 0; column < amounts.length; column++) {
+                amounts[column] = slice(mapped, offset, rows * 8).asDoubleBuffer();
+                offset += rows * 8;
+            }
+            target.appendColumns(dates, amounts, rows);
+        } else {
+            LongBuffer[] cents = new LongBuffer[BudgetRecordStore.AMOUNT_COLUMNS];
+            for (int column = 0; column < cents.length; column++) {
+                cents[column] = slice(mapped, offset, rows * 8).asLongBuffer();
+                offset += rows * 8;
+            }
+            target.appendColumns(dates, cents, rows);
+        }
+
+        ByteBuffer irregular = slice(mapped, offset, irregularBytes);
+        while (irregular.remaining() >= 8) {
+            int row = irregular.getInt();
+            byte[] text = new byte[irregular.getInt()];
+            irregular.get(text);
+            target.setIrregularDate(base + row, new String(text, StandardCharsets.UTF_8));
+        }
+    }
+
+    // Looks for a complete block with a matching checksum starting anywhere in [from, size).
+    // Blocks are not aligned, so every byte offset is tried; this only runs on a damaged file.
+    private static boolean hasValidBlockAfter(FileChannel channel, long from, long size) throws IOException {
+        long remaining = Math.min(size - from, Integer.MAX_VALUE);
+        if (remaining < BLOCK_HEADER_SIZE + 4) {
+            return false;
+        }
+        MappedByteBuffer rest = channel.map(FileChannel.MapMode.READ_ONLY, from, remaining);
+        rest.order(ByteOrder.LITTLE_ENDIAN);
+        for (int at = 0; at <= rest.limit() - BLOCK_HEADER_SIZE - 4; at++) {
+            if (rest.getInt(at) != BLOCK_MAGIC) {
+                continue;
+            }
+            int rows = rest.getInt(at + 4);
+            int irregularBytes = rest.getInt(at + 8);
+            if (rows < 0 || rows > MAX_BLOCK_ROWS || irregularBytes < 0) {
+                continue;
+            }
+            long length = BLOCK_HEADER_SIZE + (long) rows * ROW_BYTES + irregularBytes + 4;
+            if (at + length > rest.limit()) {
+                continue;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(slice(rest, at + 4, (int) length - 8));
+            if ((int) crc.getValue() == rest.getInt(at + (int) length - 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + channel);
+            }
+        }
+        buffer.flip();
+    }
+
+    // Text conversion: date,income,food,rent,travel,study,entertainment per line
+    public static int textToSnapshot(File text, File snapshot) throws IOException {
+        BudgetRecordStore store = new BudgetImporter().importFile(text, null).getRecords();
+        write(store, snapshot);
+        return store.size();
+    }
+
+    public static int snapshotToText(File snapshot, File text) throws IOException {
+        BudgetRecordStore store = new BudgetSnapshot(snapshot).load();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(text), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder line = new StringBuilder(128);
+            for (int row = 0; row < store.size(); row++) {
+                line.setLength(0);
+                line.append(store.getDate(row));
+                for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                    line.append(',').append(Money.format(store.getCents(column, row)));
+                }
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+        return store.size();
+    }
+
+    // java -cp budget-planner.jar budgetplannerapp.BudgetSnapshot --to-snapshot budget.txt history.snapshot
+    // java -cp budget-planner.jar budgetplannerapp.BudgetSnapshot --to-text history.snapshot budget.txt
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("--to-snapshot") || args[0].equals("--to-text"))) {
+            System.err.println("Usage: BudgetSnapshot --to-snapshot <text> <snapshot> | --to-text <snapshot> <text>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        int rows = args[0].equals("--to-snapshot")
+            ? textToSnapshot(new File(args[1]), new File(args[2]))
+            : snapshotToText(new File(args[1]), new File(args[2]));
+        System.out.printf("Converted %,d records in %.2f s%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,105 @@
+package budgetplannerapp;
+
+import java.awt.*;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+// Records Table Model
+// Reads cells straight from the record store; nothing is copied or formatted
+// up front. Amounts are handed to the table as Doubles and turned into text by
+// CurrencyRenderer, which JTable only calls for rows that are actually visible.
+class BudgetTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {
+        "Date", "Income", "Food", "Rent", "Travel", "Study", "Entertainment", "Total Expenses", "Savings"
+    };
+
+    // Model update plus the table's own handling of the event
+    private static final Metrics.Histogram REFRESH_NANOS = Metrics.histogram("table.refresh");
+
+    private final BudgetRecordStore store;
+    private int rowCount;
+
+    public BudgetTableModel(BudgetRecordStore store) {
+        this.store = store;
+        this.rowCount = store.size();
+    }
+
+    // Announces rows appended since the last call; a shrunk store repaints everything
+    public void syncWithStore() {
+        long start = System.nanoTime();
+        int size = store.size();
+        if (size > rowCount) {
+            int first = rowCount;
+            rowCount = size;
+            fireTableRowsInserted(first, size - 1);
+        } else if (size < rowCount) {
+            rowCount = size;
+            fireTableDataChanged();
+        } else {
+            return;
+        }
+        REFRESH_NANOS.recordSince(start);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? String.class : Double.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return store.getDate(row);
+            case 7: return store.getTotalExpenses(row);
+            case 8: return store.getSavings(row);
+            default: return store.getAmount(column - 1, row);
+        }
+    }
+
+    // Shared "$%.2f" renderer with a small direct-mapped cache of formatted values,
+    // so scrolling back over the same amounts does not format them again
+    static class CurrencyRenderer extends DefaultTableCellRenderer {
+        private static final int CACHE_SIZE = 1024;
+
+        private final long[] cachedBits = new long[CACHE_SIZE];
+        private final String[] cachedText = new String[CACHE_SIZE];
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Double ? format((Double) value) : value == null ? "" : value.toString());
+        }
+
+        String format(double amount) {
+            long bits = Double.doubleToLongBits(amount);
+            int slot = (int) (bits ^ (bits >>> 32)) & (CACHE_SIZE - 1);
+            String text = cachedText[slot];
+            if (text == null || cachedBits[slot] != bits) {
+                text = String.format("$%.2f", amount);
+                cachedBits[slot] = bits;
+                cachedText[slot] = text;
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Write-Behind Budget Persistence
+// Saves are queued and a single background writer turns them into JDBC batches,
+// one transaction per batch. Failed batches are retried with backoff and, if the
+// database stays unreachable, appended to a local journal that is replayed on
+// the next successful write. Callers get a future instead of waiting on the network.
+// The app uses one shared() writer per process: every window queues into it, so only
+// its thread ever appends to or replays the default journal. It outlives logouts and
+// drains from a shutdown hook, so no window waits for it on the event thread.
+// Imports come in through submitAll() and are written with TransactionBulkWriter, one
+// commit per chunk; whatever is not committed when the database gives up, or when the
+// drain runs out of time, is journaled like any other save. Replay records how many
+// leading journal entries are committed in a small progress file after every chunk,
+// so a journal that cannot be deleted afterwards is not inserted a second time.
+class BudgetWriteBehind {
+    public enum SyncStatus { SYNCED, JOURNALED }
+
+    static final String INSERT_SQL =
+        "INSERT INTO Transactions (user_id, category, amount, type, transaction_date) VALUES (?, ?, ?, ?, ?)";
+    static final String[] CATEGORIES = {"Income", "Food", "Rent", "Travel", "Study", "Entertainment"};
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH_RECORDS = 500;
+    private static final long MAX_BATCH_DELAY_MILLIS = 250;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final long SHUTDOWN_DRAIN_MILLIS = 3_000;
+
+    static final Metrics.Histogram BATCH_NANOS = Metrics.histogram("db.batch");
+    static final Metrics.Counter BATCH_ROWS = Metrics.counter("db.batchRows");
+    private static final Metrics.Counter JOURNALED = Metrics.counter("db.journaledSaves");
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final File journal;
+    private final File progress;
+    private final BlockingQueue<PendingSave> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<PendingBulk> bulks = new LinkedBlockingQueue<>();
+    private final TransactionBulkWriter bulkWriter = new TransactionBulkWriter();
+    // What the writer is working on; close() journals it (for a bulk save, its
+    // uncommitted rows) if the writer is still busy with it when the drain times out
+    private final Object inFlightLock = new Object();
+    private List<PendingSave> batchInFlight;
+    private PendingBulk bulkInFlight;
+    private boolean abandoned;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public BudgetWriteBehind(ConnectionPool.ConnectionFactory connections, File journal) {
+        this.connections = connections;
+        this.journal = journal;
+        this.progress = new File(journal.getPath() + ".done");
+        this.writer = new Thread(this::writeLoop, "budget-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Started on first use, since CATEGORIES and the helpers are used without a writer
+    public static BudgetWriteBehind shared() {
+        return Shared.WRITER;
+    }
+
+    public static File defaultJournal() {
+        return new File(new File(System.getProperty("user.home"), ".budgetplanner"), "pending-transactions.journal");
+    }
+
+    // Never blocks; a full queue fails the future straight away
+    public CompletableFuture<SyncStatus> submit(int userId, BudgetRecord record) {
+        CompletableFuture<SyncStatus> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Write-behind queue is closed"));
+        } else if (!queue.offer(new PendingSave(userId, record, future))) {
+            future.completeExceptionally(new RejectedExecutionException(
+                "Too many unsaved budgets (" + QUEUE_CAPACITY + "), try again shortly"));
+        }
+        return future;
+    }
+
+    // Queued behind any bulk save already running, never rejected: the rows are already in memory
+    public CompletableFuture<SyncStatus> submitAll(int userId, List<? extends BudgetRecord> records) {
+        CompletableFuture<SyncStatus> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Write-behind queue is closed"));
+        } else if (records.isEmpty()) {
+            future.complete(SyncStatus.SYNCED);
+        } else {
+            bulks.add(new PendingBulk(userId, new ArrayList<>(records), future));
+        }
+        return future;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    // Stops accepting saves and gives the writer up to timeoutMillis to drain the queue;
+    // whatever is still queued afterwards goes to the journal. A chunk being committed
+    // right then may reach the database as well as the journal: written twice beats lost.
+    public void close(long timeoutMillis) {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingSave> leftover = new ArrayList<>();
+        List<PendingBulk> unsaved = new ArrayList<>();
+        synchronized (inFlightLock) {
+            abandoned = true;
+            if (batchInFlight != null) {
+                leftover.addAll(batchInFlight);
+                batchInFlight = null;
+            }
+            if (bulkInFlight != null) {
+                unsaved.add(bulkInFlight);
+                bulkInFlight = null;
+            }
+        }
+        bulks.drainTo(unsaved);
+        for (PendingBulk bulk : unsaved) {
+            journalRemainder(bulk);
+        }
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            journalOrFail(leftover);
+        }
+    }
+
+    private void writeLoop() {
+        replayJournal();
+        while (running || !queue.isEmpty() || !bulks.isEmpty()) {
+            PendingBulk bulk = bulks.poll();
+            if (bulk != null) {
+                flushBulk(bulk);
+                continue;
+            }
+            List<PendingSave> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    batch = new ArrayList<>();
+                    queue.drainTo(batch, MAX_BATCH_RECORDS);
+                } else {
+                    continue;
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    // Waits for one save, then keeps collecting until the batch is full or the delay runs out
+    private List<PendingSave> nextBatch() throws InterruptedException {
+        List<PendingSave> batch = new ArrayList<>();
+        PendingSave first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BATCH_DELAY_MILLIS);
+        while (batch.size() < MAX_BATCH_RECORDS) {
+            queue.drainTo(batch, MAX_BATCH_RECORDS - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= MAX_BATCH_RECORDS || remaining <= 0) {
+                break;
+            }
+            PendingSave next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void flush(List<PendingSave> batch) {
+        if (!track(batch)) {
+            journalOrFail(batch); // taken off the queue after close() gave up on the writer
+            return;
+        }
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                writeBatch(batch);
+                untrack(batch);
+                for (PendingSave save : batch) {
+                    save.future.complete(SyncStatus.SYNCED);
+                }
+                if (journal.length() > 0) {
+                    replayJournal();
+                }
+                return;
+            } catch (SQLException e) {
+                System.err.println("Budget sync attempt " + attempt + " failed: " + e.getMessage());
+                if (attempt == MAX_ATTEMPTS || !backOff(backoff)) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        if (untrack(batch)) {
+            journalOrFail(batch);
+        }
+    }
+
+    private boolean track(List<PendingSave> batch) {
+        synchronized (inFlightLock) {
+            if (abandoned) {
+                return false;
+            }
+            batchInFlight = batch;
+            return true;
+        }
+    }
+
+    // False if close() has taken the batch over and journaled it
+    private boolean untrack(List<PendingSave> batch) {
+        synchronized (inFlightLock) {
+            boolean mine = batchInFlight == batch;
+            batchInFlight = null;
+            return mine;
+        }
+    }
+
+    // One chunk per commit, so a failure only has to journal the rows from the failed chunk on
+    private void flushBulk(PendingBulk bulk) {
+        synchronized (inFlightLock) {
+            if (abandoned) {
+                return; // close() has journaled it
+            }
+            bulkInFlight = bulk;
+        }
+        int size = bulk.records.size();
+        while (bulk.committed < size) {
+            int end = Math.min(size, bulk.committed + bulkWriter.getRecordsPerChunk());
+            if (!writeChunk(bulk, end)) {
+                break;
+            }
+            synchronized (inFlightLock) {
+                bulk.committed = end;
+                if (abandoned) {
+                    return; // close() has journaled the rest
+                }
+            }
+        }
+        synchronized (inFlightLock) {
+            if (abandoned) {
+                return;
+            }
+            bulkInFlight = null;
+        }
+        if (bulk.committed < size) {
+            journalRemainder(bulk);
+        } else {
+            bulk.future.complete(SyncStatus.SYNCED);
+            if (journal.length() > 0) {
+                replayJournal();
+            }
+        }
+    }
+
+    private boolean writeChunk(PendingBulk bulk, int end) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = connections.create()) {
+                bulkWriter.insertAll(conn, bulk.userId, bulk.records.subList(bulk.committed, end));
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Bulk save attempt " + attempt + " failed: " + e.getMessage());
+                if (attempt == MAX_ATTEMPTS || !backOff(backoff)) {
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // False once the writer is shutting down: journal instead of waiting
+    private boolean backOff(long millis) {
+        if (!running) {
+            return false;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            return running;
+        }
+        return true;
+    }
+
+    private void journalRemainder(PendingBulk bulk) {
+        List<PendingSave> remainder = new ArrayList<>(bulk.records.size() - bulk.committed);
+        for (BudgetRecord record : bulk.records.subList(bulk.committed, bulk.records.size())) {
+            remainder.add(new PendingSave(bulk.userId, record, null));
+        }
+        try {
+            appendToJournal(remainder);
+            JOURNALED.add(remainder.size());
+            bulk.future.complete(SyncStatus.JOURNALED);
+        } catch (IOException e) {
+            bulk.future.completeExceptionally(e);
+        }
+    }
+
+    private void journalOrFail(List<PendingSave> batch) {
+        try {
+            appendToJournal(batch);
+            JOURNALED.add(batch.size());
+            for (PendingSave save : batch) {
+                if (save.future != null) {
+                    save.future.complete(SyncStatus.JOURNALED);
+                }
+            }
+        } catch (IOException e) {
+            for (PendingSave save : batch) {
+                if (save.future != null) {
+                    save.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingSave> batch) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = connections.create()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                for (PendingSave save : batch) {
+                    addRows(stmt, save.userId, save.record);
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        BATCH_NANOS.recordSince(start);
+        BATCH_ROWS.add((long) batch.size() * CATEGORIES.length);
+        MonthlyRollupCache rollups = MonthlyRollupCache.shared();
+        for (PendingSave save : batch) {
+            rollups.invalidate(save.userId, transactionDate(save.record.getDate()).toLocalDateTime().toLocalDate());
+        }
+    }
+
+    // One row per category, the same shape saveBudgetToDatabase writes
+    static void addRows(PreparedStatement stmt, int userId, BudgetRecord record) throws SQLException {
+        double[] values = {
+            record.getIncome(), record.getFood(), record.getRent(),
+            record.getTravel(), record.getStudy(), record.getEntertainment()
+        };
+        Timestamp date = transactionDate(record.getDate());
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            stmt.setInt(1, userId);
+            stmt.setString(2, CATEGORIES[i]);
+            stmt.setDouble(3, values[i]);
+            stmt.setString(4, i == 0 ? "income" : "expense");
+            stmt.setTimestamp(5, date);
+            stmt.addBatch();
+        }
+    }
+
+    // Saves may reach the database well after they were made, so keep the budget's own date
+    static Timestamp transactionDate(String date) {
+        try {
+            return Timestamp.valueOf(LocalDate.parse(date).atStartOfDay());
+        } catch (DateTimeParseException | NullPointerException e) {
+            return new Timestamp(System.currentTimeMillis());
+        }
+    }
+
+    private synchronized void appendToJournal(List<PendingSave> batch) throws IOException {
+        File dir = journal.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        if (journal.length() == 0 && progress.exists()) {
+            writeProgress(0); // a count left from the last journal would skip these saves
+        }
+        try (FileOutputStream out = new FileOutputStream(journal, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (PendingSave save : batch) {
+                BudgetRecord r = save.record;
+                writer.write(save.userId + "," + r.getDate() + "," + r.getIncomeCents() + "," + r.getFoodCents() + ","
+                    + r.getRentCents() + "," + r.getTravelCents() + "," + r.getStudyCents() + ","
+                    + r.getEntertainmentCents() + "\n");
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+
+    // Journal lines: userId,date,income,food,rent,travel,study,entertainment in cents
+    private synchronized void replayJournal() {
+        if (!journal.isFile() || journal.length() == 0) {
+            return;
+        }
+        List<PendingSave> saved = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length != 8) {
+                    continue; // torn write from a crash
+                }
+                try {
+                    BudgetRecord record = BudgetRecord.ofCents(parts[1],
+                        journalCents(parts[2]), journalCents(parts[3]), journalCents(parts[4]),
+                        journalCents(parts[5]), journalCents(parts[6]), journalCents(parts[7]));
+                    saved.add(new PendingSave(Integer.parseInt(parts[0]), record, null));
+                } catch (NumberFormatException | ArithmeticException e) {
+                    System.err.println("Skipping invalid journal line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read sync journal: " + e.getMessage());
+            return;
+        }
+
+        for (int i = Math.min(readProgress(), saved.size()); i < saved.size(); i += MAX_BATCH_RECORDS) {
+            int end = Math.min(saved.size(), i + MAX_BATCH_RECORDS);
+            try {
+                writeBatch(saved.subList(i, end));
+            } catch (SQLException e) {
+                return; // still offline: retry from here after the next good write
+            }
+            try {
+                writeProgress(end);
+            } catch (IOException e) {
+                // Stop while at most this chunk can be inserted again
+                System.err.println("Could not record sync journal progress: " + e.getMessage());
+                return;
+            }
+        }
+        // A journal that cannot be deleted keeps its count, so it is not replayed again
+        if (!journal.delete()) {
+            System.err.println("Could not clear sync journal " + journal);
+        } else if (progress.exists() && !progress.delete()) {
+            System.err.println("Could not clear " + progress); // reset by the next appendToJournal
+        }
+    }
+
+    // Journals written before amounts were cents hold dollars, always with a decimal point
+    private static long journalCents(String amount) {
+        if (amount.indexOf('.') >= 0 || amount.indexOf('E') >= 0) {
+            return Money.toCents(Double.parseDouble(amount));
+        }
+        return Long.parseLong(amount);
+    }
+
+    private int readProgress() {
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(progress.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Could not read " + progress + ", replaying the whole journal: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // The number of leading journal entries already in the database, replaced atomically
+    private void writeProgress(int done) throws IOException {
+        File temp = new File(progress.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write((done + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), progress.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Shared {
+        static final BudgetWriteBehind WRITER =
+            new BudgetWriteBehind(DBConnection::getConnection, defaultJournal());
+
+        static {
+            Runtime.getRuntime().addShutdownHook(
+                new Thread(() -> WRITER.close(SHUTDOWN_DRAIN_MILLIS), "budget-write-behind-drain"));
+        }
+    }
+
+    private static class PendingBulk {
+        final int userId;
+        final List<BudgetRecord> records;
+        final CompletableFuture<SyncStatus> future;
+        // Records before this index are committed; advanced by the writer under inFlightLock
+        volatile int committed;
+
+        PendingBulk(int userId, List<BudgetRecord> records, CompletableFuture<SyncStatus> future) {
+            this.userId = userId;
+            this.records = records;
+            this.future = future;
+        }
+    }
+
+    private static class PendingSave {
+        final int userId;
+        final BudgetRecord record;
+        final CompletableFuture<SyncStatus> future;
+
+        PendingSave(int userId, BudgetRecord record, CompletableFuture<SyncStatus> future) {
+            this.userId = userId;
+            this.record = record;
+            this.future = future;
+        }
+    }
+}
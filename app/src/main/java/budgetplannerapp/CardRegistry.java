@@ -0,0 +1,71 @@
+package budgetplannerapp;
+
+import java.awt.*;
+import java.util.*;
+import java.util.function.Supplier;
+import javax.swing.*;
+
+// Lazy Card Registry
+// Cards of a CardLayout are registered as factories and only built the first time
+// they are shown, so opening the window costs one panel instead of all of them.
+// prewarm() builds the rest later, one card per step and only while the event
+// queue is empty, so it never delays input or painting. Each build is timed into
+// the "cards.<name>.build" histogram. Everything runs on the EDT.
+class CardRegistry {
+    private static final int PREWARM_DELAY_MILLIS = 250;
+
+    private final JPanel container;
+    private final CardLayout layout;
+    private final Map<String, Supplier<? extends JComponent>> factories = new LinkedHashMap<>();
+    private final Set<String> built = new HashSet<>();
+
+    public CardRegistry(JPanel container, CardLayout layout) {
+        this.container = container;
+        this.layout = layout;
+    }
+
+    public void register(String name, Supplier<? extends JComponent> factory) {
+        factories.put(name, factory);
+    }
+
+    public boolean isBuilt(String name) {
+        return built.contains(name);
+    }
+
+    public void show(String name) {
+        ensureBuilt(name);
+        layout.show(container, name);
+    }
+
+    private void ensureBuilt(String name) {
+        if (isBuilt(name)) {
+            return;
+        }
+        Supplier<? extends JComponent> factory = factories.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("No card registered as " + name);
+        }
+        long start = System.nanoTime();
+        container.add(factory.get(), name);
+        Metrics.histogram("cards." + name + ".build").recordSince(start);
+        built.add(name);
+    }
+
+    // Builds the remaining cards in the background of the EDT, starting after delay
+    public void prewarm() {
+        javax.swing.Timer timer = new javax.swing.Timer(PREWARM_DELAY_MILLIS, null);
+        timer.addActionListener(e -> {
+            if (Toolkit.getDefaultToolkit().getSystemEventQueue().peekEvent() != null) {
+                return; // busy: try again on the next tick
+            }
+            for (String name : factories.keySet()) {
+                if (!isBuilt(name)) {
+                    ensureBuilt(name);
+                    return;
+                }
+            }
+            timer.stop();
+        });
+        timer.start();
+    }
+}
@@ -0,0 +1,451 @@
+package budgetplannerapp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// JDBC Connection Pool
+// A small bounded pool used by DBConnection. Borrowed connections are proxies:
+// close() hands the physical connection back, and prepareStatement(sql) is served
+// from a per-connection statement cache whose close() only clears parameters.
+class ConnectionPool {
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Connections handed back this recently skip the isValid() round trip on borrow
+    private static final long VALIDATION_GRACE_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    // Shared by every pool: opening a physical connection, and waiting for a permit
+    private static final Metrics.Histogram CONNECT_NANOS = Metrics.histogram("db.connect");
+    private static final Metrics.Histogram BORROW_WAIT_NANOS = Metrics.histogram("db.borrowWait");
+    private static final Metrics.Counter BORROW_TIMEOUTS = Metrics.counter("db.borrowTimeouts");
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, int statementCacheSize) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                BORROW_TIMEOUTS.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for a database connection (" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (pooled.isUsable()) {
+                    return lend(pooled);
+                }
+                discard(pooled);
+            }
+            long connectStart = System.nanoTime();
+            pooled = new PooledConnection(factory.create());
+            CONNECT_NANOS.recordSince(connectStart);
+            created.incrementAndGet();
+            return lend(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection lend(PooledConnection pooled) {
+        active.incrementAndGet();
+        borrows.incrementAndGet();
+        return pooled.newHandle();
+    }
+
+    private synchronized PooledConnection pollIdle() {
+        return idle.pollFirst();
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.broken || !pooled.reset()) {
+                discard(pooled);
+                return;
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            synchronized (this) {
+                idle.addFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        discarded.incrementAndGet();
+        pooled.closePhysical();
+    }
+
+    // Idle connections are kept most-recent-first, so the stale ones sit at the tail
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            while (!idle.isEmpty() && idle.peekLast().lastReturned < cutoff) {
+                expired.add(idle.pollLast());
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            discard(pooled);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : remaining) {
+            discard(pooled);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        BORROW_WAIT_NANOS.record(nanos);
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // retry until the larger value sticks
+        }
+    }
+
+    public Stats getStats() {
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+        return new Stats(active.get(), idleCount, maxSize, borrows.get(), timeouts.get(), created.get(),
+            discarded.get(), totalWaitNanos.get(), maxWaitNanos.get(), statementHits.get(), statementMisses.get());
+    }
+
+    private static boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    // One physical connection plus its statement cache
+    private class PooledConnection {
+        final Connection physical;
+        final LinkedHashMap<String, CachedStatement> statements;
+        volatile long lastReturned = System.currentTimeMillis();
+        volatile boolean broken = false;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() > statementCacheSize && !eldest.getValue().inUse) {
+                        eldest.getValue().closePhysical();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        boolean isUsable() {
+            if (System.currentTimeMillis() - lastReturned < VALIDATION_GRACE_MILLIS) {
+                return true;
+            }
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Puts the connection back the way a fresh one would be
+        boolean reset() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            for (CachedStatement cached : statements.values()) {
+                cached.closePhysical();
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Already gone; nothing else to release
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new Handle(this));
+        }
+
+        PreparedStatement prepare(String sql, Connection handle) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse) {
+                statementHits.incrementAndGet();
+                cached.inUse = true;
+                return cached.newHandle(handle);
+            }
+            statementMisses.incrementAndGet();
+            PreparedStatement statement = physical.prepareStatement(sql);
+            if (cached != null) {
+                // Same SQL already open on this connection; this one is not cached
+                return statement;
+            }
+            cached = new CachedStatement(this, statement);
+            cached.inUse = true;
+            statements.put(sql, cached);
+            return cached.newHandle(handle);
+        }
+    }
+
+    // What callers actually hold; closing it returns the connection to the pool
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released = false;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!released) {
+                    released = true;
+                    giveBack(pooled);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return released || pooled.physical.isClosed();
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("toString")) {
+                return "Pooled" + pooled.physical;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.prepare((String) args[0], (Connection) proxy);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    private class CachedStatement {
+        final PooledConnection owner;
+        final PreparedStatement physical;
+        volatile boolean inUse = false;
+
+        CachedStatement(PooledConnection owner, PreparedStatement physical) {
+            this.owner = owner;
+            this.physical = physical;
+        }
+
+        PreparedStatement newHandle(Connection connection) {
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, new StatementHandle(this, connection));
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Closed along with its connection
+            }
+        }
+    }
+
+    private class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+        private boolean released = false;
+
+        StatementHandle(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!released) {
+                    released = true;
+                    try {
+                        cached.physical.clearParameters();
+                        cached.physical.clearBatch();
+                    } finally {
+                        cached.inUse = false;
+                    }
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return released;
+            }
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (released) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // A dead link usually shows up here first, in executeQuery/Update/Batch
+                if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+                    cached.owner.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int maxSize;
+        private final long borrows;
+        private final long timeouts;
+        private final long created;
+        private final long discarded;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long statementHits;
+        private final long statementMisses;
+
+        Stats(int active, int idle, int maxSize, long borrows, long timeouts, long created, long discarded,
+              long totalWaitNanos, long maxWaitNanos, long statementHits, long statementMisses) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.discarded = discarded;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getMaxSize() { return maxSize; }
+        public long getBorrows() { return borrows; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getDiscarded() { return discarded; }
+        public long getTotalWaitNanos() { return totalWaitNanos; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+
+        public double getAverageWaitMillis() {
+            return borrows == 0 ? 0 : totalWaitNanos / 1e6 / borrows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d max=%d borrows=%d timeouts=%d created=%d discarded=%d " +
+                    "avgWait=%.3fms maxWait=%.3fms statementHits=%d statementMisses=%d",
+                active, idle, maxSize, borrows, timeouts, created, discarded,
+                getAverageWaitMillis(), maxWaitNanos / 1e6, statementHits, statementMisses);
+        }
+    }
+}
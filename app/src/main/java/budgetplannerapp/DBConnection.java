@@ -0,0 +1,81 @@
+package budgetplannerapp;
+
+import java.sql.*;
+import java.util.function.ToLongFunction;
+
+// FINAL, CORRECTED DBConnection CLASS
+// Connections come from a bounded pool; close() hands them back instead of disconnecting.
+// Kept apart from MainFrame so batch mode can reach the database without loading Swing.
+final class DBConnection {
+    // Correct URL for Named Instance (SQLEXPRESS)
+    private static final String URL = "jdbc:sqlserver://LAPTOP-4JFN9RFR;instanceName=SQLEXPRESS;databaseName=BudgetPlannerDB;user=budgetUser;password=StrongPassword123;encrypt=false;trustServerCertificate=true;";
+    private static final String USER = "budgetUser"; 
+    private static final String PASSWORD = "StrongPassword123"; 
+
+    // Pool settings
+    static final int POOL_SIZE = 8;
+    private static final long BORROW_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private static ConnectionPool pool;
+
+    static {
+        Metrics.gauge("db.pool.active", () -> statOrZero(ConnectionPool.Stats::getActive));
+        Metrics.gauge("db.pool.idle", () -> statOrZero(ConnectionPool.Stats::getIdle));
+    }
+
+    public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    public static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            try {
+                // Step 1: Load the JDBC Driver Class (essential for some environments)
+                Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("❌ SQL Server JDBC Driver not found. Check your classpath.");
+                throw new SQLException("SQL Server JDBC Driver not found", e);
+            }
+            pool = createPool(URL, USER, PASSWORD);
+        }
+        return pool;
+    }
+
+    // Points the pool at another database, e.g. an embedded one for local runs
+    public static synchronized void configure(String url, String user, String password) {
+        shutdown();
+        pool = createPool(url, user, password);
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    public static synchronized ConnectionPool.Stats getPoolStats() {
+        return pool == null ? null : pool.getStats();
+    }
+
+    private static long statOrZero(ToLongFunction<ConnectionPool.Stats> stat) {
+        ConnectionPool.Stats stats = getPoolStats();
+        return stats == null ? 0 : stat.applyAsLong(stats);
+    }
+
+    private static ConnectionPool createPool(String url, String user, String password) {
+        // Step 2: Establish connections lazily, one per pool slot
+        return new ConnectionPool(() -> {
+            try {
+                Connection conn = DriverManager.getConnection(url, user, password);
+                System.out.println("✅ Connected to SQL Server!");
+                return conn;
+            } catch (SQLException e) {
+                System.err.println("❌ Connection failed! Check URL, user/pass, and SQL Server Browser service.");
+                throw e;
+            }
+        }, POOL_SIZE, BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, STATEMENT_CACHE_SIZE);
+    }
+}
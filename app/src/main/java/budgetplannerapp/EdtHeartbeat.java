@@ -0,0 +1,54 @@
+package budgetplannerapp;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// EDT Heartbeat
+// Posts an empty event to the event dispatch thread every INTERVAL_MILLIS and records
+// how long it waited in the queue as "edt.lag". An idle EDT runs it within
+// microseconds, so the histogram's tail is how long the UI was blocked. A beat
+// is only posted once the previous one has run, so a frozen EDT does not fill up
+// with them; the freeze shows up as one long lag.
+final class EdtHeartbeat {
+    public static final long INTERVAL_MILLIS = Long.getLong("budget.edtHeartbeatMillis", 100);
+    // Lags past this count as a stall
+    public static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("budget.edtStallMillis", 200));
+
+    private static final Metrics.Histogram LAG = Metrics.histogram("edt.lag");
+    private static final Metrics.Counter STALLS = Metrics.counter("edt.stalls");
+    private static volatile boolean inFlight;
+    private static boolean started;
+
+    private EdtHeartbeat() {}
+
+    public static synchronized void start() {
+        if (started || INTERVAL_MILLIS <= 0) {
+            return;
+        }
+        started = true;
+        ScheduledExecutorService beats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edt-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        beats.scheduleWithFixedDelay(EdtHeartbeat::beat, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void beat() {
+        if (inFlight) {
+            return;
+        }
+        inFlight = true;
+        long posted = System.nanoTime();
+        EventQueue.invokeLater(() -> {
+            long lag = System.nanoTime() - posted;
+            LAG.record(lag);
+            if (lag >= STALL_NANOS) {
+                STALLS.increment();
+            }
+            inFlight = false;
+        });
+    }
+}
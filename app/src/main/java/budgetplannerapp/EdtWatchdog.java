@@ -0,0 +1,329 @@
+package budgetplannerapp;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+
+// EDT Watchdog
+// Pushes an EventQueue that times every dispatch on the event dispatch thread.
+// A modal dialog pumps events from inside the handler that opened it, so the time
+// the EDT spends waiting in getNextEvent, or running those nested events, is not
+// charged to that handler: it counts only while its own code runs.
+// While a dispatch has been blocked for EdtHeartbeat.STALL_NANOS, a sampler thread
+// takes the EDT's stack every SAMPLE_MILLIS. When the dispatch ends, it becomes a
+// SlowEvent that records what caused it:
+// - the component behind the event (buttons by name, e.g. saveBtn)
+// - the app frame nearest the Swing listener call, e.g. MainFrame.exportToCSV
+// - the app frame seen most often on top of the sampled stacks
+// Slow events are printed to stderr, kept in a ring of RING_SIZE, and written with
+// their stacks to SLOW_EVENTS_LOG on exit.
+final class EdtWatchdog {
+    public static final long SAMPLE_MILLIS = Math.max(5, TimeUnit.NANOSECONDS.toMillis(EdtHeartbeat.STALL_NANOS) / 4);
+    public static final int RING_SIZE = Integer.getInteger("budget.edtSlowEvents", 64);
+    public static final File SLOW_EVENTS_LOG =
+        new File(new File(System.getProperty("user.home"), ".budgetplanner"), "edt-slow-events.log");
+
+    private static final int MAX_SAMPLES = 32;
+    private static final int MAX_DEPTH = 32;
+    private static final int LOGGED_FRAMES = 16;
+    private static final String APP_PACKAGE = EdtWatchdog.class.getPackage().getName() + ".";
+
+    private static final Metrics.Histogram DISPATCH_NANOS = Metrics.histogram("edt.dispatch");
+    private static final Metrics.Counter SLOW_EVENTS = Metrics.counter("edt.slowEvents");
+
+    private static final Object LOCK = new Object();
+    // Guarded by LOCK: samples not yet claimed by a finished dispatch, and the ring
+    private static final List<Sample> pendingSamples = new ArrayList<>();
+    private static int droppedSamples;
+    private static final SlowEvent[] ring = new SlowEvent[Math.max(1, RING_SIZE)];
+    private static int ringNext;
+    private static long slowTotal;
+
+    private static volatile Thread edt;
+    // When the EDT last left getNextEvent; 0 while it waits for an event
+    private static volatile long busySince;
+    private static boolean started;
+
+    private EdtWatchdog() {}
+
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new WatchedQueue());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edt-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(EdtWatchdog::check, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(EdtWatchdog::dumpQuietly, "edt-watchdog-dump"));
+    }
+
+    // Most recent first
+    public static List<SlowEvent> getSlowEvents() {
+        synchronized (LOCK) {
+            List<SlowEvent> events = new ArrayList<>(ring.length);
+            for (int i = 1; i <= ring.length; i++) {
+                SlowEvent event = ring[Math.floorMod(ringNext - i, ring.length)];
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            return events;
+        }
+    }
+
+    public static void dump(File file) throws IOException {
+        List<SlowEvent> events = getSlowEvents();
+        long total;
+        synchronized (LOCK) {
+            total = slowTotal;
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            out.printf("# %s: %,d slow events, last %d below%n", LocalDateTime.now(), total, events.size());
+            for (SlowEvent event : events) {
+                event.print(out);
+            }
+            out.println();
+        }
+    }
+
+    private static void dumpQuietly() {
+        try {
+            if (!getSlowEvents().isEmpty()) {
+                dump(SLOW_EVENTS_LOG);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write slow EDT events to " + SLOW_EVENTS_LOG + ": " + e.getMessage());
+        }
+    }
+
+    // Sampler thread: one stack per tick while the EDT stays busy past the threshold
+    private static void check() {
+        long since = busySince;
+        Thread thread = edt;
+        if (since == 0 || thread == null || System.nanoTime() - since < EdtHeartbeat.STALL_NANOS) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        long taken = System.nanoTime();
+        if (busySince != since) {
+            return; // finished while the stack was being taken; it may not belong to this dispatch
+        }
+        synchronized (LOCK) {
+            if (pendingSamples.size() < MAX_SAMPLES) {
+                pendingSamples.add(new Sample(taken, stack));
+            } else {
+                droppedSamples++;
+            }
+        }
+    }
+
+    // Called on the EDT once a slow dispatch returns
+    private static void slow(AWTEvent event, long started, long blockedNanos, boolean outermost) {
+        List<Sample> samples = new ArrayList<>();
+        int dropped;
+        synchronized (LOCK) {
+            // Nested dispatches finish first and take their own samples
+            for (Iterator<Sample> it = pendingSamples.iterator(); it.hasNext(); ) {
+                Sample sample = it.next();
+                if (sample.nanos >= started) {
+                    samples.add(sample);
+                    it.remove();
+                }
+            }
+            if (outermost) {
+                pendingSamples.clear(); // anything older came from a dispatch that was not tracked
+            }
+            dropped = droppedSamples;
+            droppedSamples = 0;
+        }
+        SlowEvent slow = new SlowEvent(LocalDateTime.now(), blockedNanos, describe(event), samples, dropped);
+        synchronized (LOCK) {
+            ring[ringNext] = slow;
+            ringNext = (ringNext + 1) % ring.length;
+            slowTotal++;
+        }
+        SLOW_EVENTS.increment();
+        System.err.println("EDT blocked " + slow);
+    }
+
+    private static String describe(AWTEvent event) {
+        String type = event.getClass().getSimpleName();
+        if (event instanceof InvocationEvent) {
+            return type; // invokeLater: the samples say whose
+        }
+        Object source = event.getSource();
+        return source instanceof Component ? type + " on " + label((Component) source) : type;
+    }
+
+    private static String label(Component component) {
+        String text = component instanceof AbstractButton ? " \"" + ((AbstractButton) component).getText() + "\"" : "";
+        String name = component.getName();
+        return (name != null ? name : component.getClass().getSimpleName()) + text;
+    }
+
+    // Our own code, leaving out the watchdog and the generated classes behind lambdas
+    private static boolean isAppFrame(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.startsWith(APP_PACKAGE) && !className.startsWith(EdtWatchdog.class.getName())
+            && !className.contains("$$Lambda");
+    }
+
+    private static String format(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+    }
+
+    // Installed with push(); getNextEvent and dispatchEvent both run on the EDT only
+    private static final class WatchedQueue extends EventQueue {
+        // EDT-confined: per nesting level, the start and the time already accounted for
+        // elsewhere (waiting, or in nested dispatches) when it began
+        private final long[] startedAt = new long[MAX_DEPTH];
+        private final long[] elsewhereAtStart = new long[MAX_DEPTH];
+        private int depth;
+        private long elsewhereNanos;
+
+        @Override
+        public AWTEvent getNextEvent() throws InterruptedException {
+            long waitStart = System.nanoTime();
+            busySince = 0;
+            try {
+                return super.getNextEvent();
+            } finally {
+                long now = System.nanoTime();
+                elsewhereNanos += now - waitStart;
+                busySince = now;
+            }
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            if (depth >= MAX_DEPTH) {
+                super.dispatchEvent(event);
+                return;
+            }
+            int level = depth++;
+            if (level == 0) {
+                edt = Thread.currentThread(); // AWT starts a new EDT after an uncaught exception
+            }
+            long start = System.nanoTime();
+            startedAt[level] = start;
+            elsewhereAtStart[level] = elsewhereNanos;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                depth--;
+                long blocked = System.nanoTime() - start - (elsewhereNanos - elsewhereAtStart[level]);
+                elsewhereNanos += blocked; // the enclosing dispatch, if any, was not running meanwhile
+                DISPATCH_NANOS.record(blocked);
+                if (blocked >= EdtHeartbeat.STALL_NANOS) {
+                    slow(event, startedAt[level], blocked, level == 0);
+                }
+            }
+        }
+    }
+
+    private static final class Sample {
+        final long nanos;
+        final StackTraceElement[] stack;
+
+        Sample(long nanos, StackTraceElement[] stack) {
+            this.nanos = nanos;
+            this.stack = stack;
+        }
+    }
+
+    public static final class SlowEvent {
+        private final LocalDateTime finished;
+        private final long blockedNanos;
+        private final String event;
+        private final List<Sample> samples;
+        private final int droppedSamples;
+        private final String listener;
+        private final String hotFrame;
+
+        SlowEvent(LocalDateTime finished, long blockedNanos, String event, List<Sample> samples, int droppedSamples) {
+            this.finished = finished;
+            this.blockedNanos = blockedNanos;
+            this.event = event;
+            this.samples = samples;
+            this.droppedSamples = droppedSamples;
+            this.listener = samples.isEmpty() ? null : listenerFrame(samples.get(0).stack);
+            this.hotFrame = hottestFrame(samples);
+        }
+
+        public long getBlockedMillis() { return blockedNanos / 1_000_000; }
+        public String getEvent() { return event; }
+        public String getListener() { return listener; }
+        public String getHotFrame() { return hotFrame; }
+        public int getSampleCount() { return samples.size(); }
+
+        // The outermost app frame: the handler Swing called into
+        private static String listenerFrame(StackTraceElement[] stack) {
+            for (int i = stack.length - 1; i >= 0; i--) {
+                if (isAppFrame(stack[i])) {
+                    return format(stack[i]);
+                }
+            }
+            return null;
+        }
+
+        // The innermost app frame seen most often across the samples
+        private static String hottestFrame(List<Sample> samples) {
+            Map<String, Integer> counts = new HashMap<>();
+            String hottest = null;
+            int best = 0;
+            for (Sample sample : samples) {
+                for (StackTraceElement frame : sample.stack) {
+                    if (isAppFrame(frame)) {
+                        String key = format(frame);
+                        int count = counts.merge(key, 1, Integer::sum);
+                        if (count > best) {
+                            best = count;
+                            hottest = key;
+                        }
+                        break;
+                    }
+                }
+            }
+            return hottest;
+        }
+
+        void print(PrintWriter out) {
+            out.println(finished + " " + this);
+            for (int i = 0; i < samples.size(); i++) {
+                StackTraceElement[] stack = samples.get(i).stack;
+                out.println("  sample " + (i + 1) + ":");
+                for (int frame = 0; frame < Math.min(stack.length, LOGGED_FRAMES); frame++) {
+                    out.println("    at " + stack[frame]);
+                }
+                if (stack.length > LOGGED_FRAMES) {
+                    out.println("    ... " + (stack.length - LOGGED_FRAMES) + " more");
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d ms by %s%s (%d samples%s%s)", getBlockedMillis(), event,
+                listener == null ? "" : " in " + listener, samples.size(),
+                droppedSamples == 0 ? "" : ", " + droppedSamples + " dropped",
+                hotFrame == null || hotFrame.equals(listener) ? "" : ", mostly in " + hotFrame);
+        }
+    }
+}
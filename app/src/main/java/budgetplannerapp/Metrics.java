@@ -0,0 +1,311 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.*;
+
+// Metrics Registry
+// Counters, gauges and latency histograms for the hot paths, by dotted name
+// ("import.lines", "db.batch"). Callers keep what counter()/histogram() return in a
+// static field, so recording is one lock-free update with no allocation: counters
+// are LongAdders and histograms add into fixed log-linear buckets (HdrHistogram's
+// layout, 32 sub-buckets per power of two, so percentiles are within about 3%).
+// start() publishes everything as attributes of the budgetplannerapp:type=Metrics
+// MBean (jconsole, VisualVM) and appends a report to METRICS_LOG every
+// DUMP_SECONDS (0 turns the file off) and once more on exit.
+final class Metrics {
+    public static final long DUMP_SECONDS = Long.getLong("budget.metricsDumpSeconds", 60);
+    public static final File METRICS_LOG =
+        new File(new File(System.getProperty("user.home"), ".budgetplanner"), "metrics.log");
+    public static final String OBJECT_NAME = "budgetplannerapp:type=Metrics";
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static boolean started;
+
+    private Metrics() {}
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // Replaces an earlier gauge of the same name, e.g. when the pool it reads is recreated
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // Values in nanoseconds; reports show them in milliseconds
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    // Registers the MBean and schedules the file dump; later calls do nothing
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+        if (DUMP_SECONDS > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleWithFixedDelay(Metrics::dumpQuietly, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::dumpQuietly, "metrics-final-dump"));
+        }
+    }
+
+    // Every metric, one per line, sorted by name
+    public static String report() {
+        SortedMap<String, String> lines = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> lines.put(name, String.format("%,d", counter.get())));
+        GAUGES.forEach((name, gauge) -> lines.put(name, String.format("%,d", readGauge(gauge))));
+        HISTOGRAMS.forEach((name, histogram) -> lines.put(name, histogram.snapshot().toString()));
+        StringBuilder out = new StringBuilder();
+        lines.forEach((name, value) -> out.append(String.format("  %-28s %s%n", name, value)));
+        return out.toString();
+    }
+
+    public static void dump(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write("# " + LocalDateTime.now() + System.lineSeparator() + report() + System.lineSeparator());
+        }
+    }
+
+    private static void dumpQuietly() {
+        try {
+            dump(METRICS_LOG);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + METRICS_LOG + ": " + e.getMessage());
+        }
+    }
+
+    private static long readGauge(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // Log-linear buckets: values below 32 get a bucket each, then every power of two
+    // is split into 32 equal sub-buckets, up to Long.MAX_VALUE
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry until the larger value sticks
+            }
+        }
+
+        // Records the time since start, a System.nanoTime() taken before the work
+        public void recordSince(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        public Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+                total += copy[i];
+            }
+            return new Snapshot(copy, total, sum.sum(), max.get());
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        // Largest value that lands in the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+    }
+
+    // A histogram's buckets copied at one moment; count comes from the copy so
+    // percentiles always add up, even while other threads keep recording
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long getPercentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Histogram.upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count %,d  mean %.3f ms  p50 %.3f ms  p90 %.3f ms  p99 %.3f ms  max %.3f ms",
+                count, getMean() / 1e6, getPercentile(0.50) / 1e6, getPercentile(0.90) / 1e6,
+                getPercentile(0.99) / 1e6, max / 1e6);
+        }
+    }
+
+    // Read-only MBean whose attributes follow the registry: a counter or gauge is one
+    // Long attribute, a histogram is name.count plus name.mean/p50/p90/p99/max in ms
+    private static final class Bean implements DynamicMBean {
+        private static final String[] HISTOGRAM_FIELDS = {"count", "meanMillis", "p50Millis", "p90Millis",
+            "p99Millis", "maxMillis"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Counter counter = COUNTERS.get(attribute);
+            if (counter != null) {
+                return counter.get();
+            }
+            LongSupplier gauge = GAUGES.get(attribute);
+            if (gauge != null) {
+                return readGauge(gauge);
+            }
+            int dot = attribute.lastIndexOf('.');
+            Histogram histogram = dot < 0 ? null : HISTOGRAMS.get(attribute.substring(0, dot));
+            if (histogram != null) {
+                Snapshot snapshot = histogram.snapshot();
+                switch (attribute.substring(dot + 1)) {
+                    case "count": return snapshot.getCount();
+                    case "meanMillis": return snapshot.getMean() / 1e6;
+                    case "p50Millis": return snapshot.getPercentile(0.50) / 1e6;
+                    case "p90Millis": return snapshot.getPercentile(0.90) / 1e6;
+                    case "p99Millis": return snapshot.getPercentile(0.99) / 1e6;
+                    case "maxMillis": return snapshot.getMax() / 1e6;
+                    default: break;
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // left out, as the DynamicMBean contract asks
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : new TreeSet<>(COUNTERS.keySet())) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", "Counter", true, false, false));
+            }
+            for (String name : new TreeSet<>(GAUGES.keySet())) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", "Gauge", true, false, false));
+            }
+            for (String name : new TreeSet<>(HISTOGRAMS.keySet())) {
+                for (String field : HISTOGRAM_FIELDS) {
+                    attributes.add(new MBeanAttributeInfo(name + "." + field,
+                        field.equals("count") ? "java.lang.Long" : "java.lang.Double", "Histogram", true, false, false));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Budget Planner metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package budgetplannerapp;
+
+// Money
+// Amounts are whole cents in a long everywhere they are stored or summed, so
+// totals over millions of rows are exact. One amount is limited to MAX_CENTS,
+// which keeps a row's total expenses and savings far from overflow; sums across
+// rows go through add(), which throws instead of wrapping around. Doubles only
+// appear at the edges (display, JDBC, queries) and convert exactly below 2^53 cents.
+final class Money {
+    // Ten trillion dollars, either sign
+    public static final long MAX_CENTS = 1_000_000_000_000_000L;
+
+    private Money() {}
+
+    // Nearest cent, halves away from zero; NaN and out-of-range amounts are rejected
+    public static long toCents(double amount) {
+        double cents = amount * 100;
+        if (!(Math.abs(cents) <= MAX_CENTS)) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return cents < 0 ? -Math.round(-cents) : Math.round(cents);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    public static long checkAmount(long cents) {
+        if (cents > MAX_CENTS || cents < -MAX_CENTS) {
+            throw new ArithmeticException("Amount out of range: " + format(cents));
+        }
+        return cents;
+    }
+
+    // Math.addExact compiles to an add and an overflow-flag branch
+    public static long add(long a, long b) {
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Money overflow: " + format(a) + " + " + format(b));
+        }
+    }
+
+    public static long subtract(long a, long b) {
+        try {
+            return Math.subtractExact(a, b);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Money overflow: " + format(a) + " - " + format(b));
+        }
+    }
+
+    // "-1234.05"; the same text as String.format("%.2f", toDouble(cents)) in an ASCII locale
+    public static String format(long cents) {
+        StringBuilder text = new StringBuilder(24);
+        if (cents < 0) {
+            text.append('-');
+        }
+        long units = Math.abs(cents / 100);
+        int fraction = (int) Math.abs(cents % 100);
+        return text.append(units).append('.').append((char) ('0' + fraction / 10))
+            .append((char) ('0' + fraction % 10)).toString();
+    }
+}
@@ -0,0 +1,374 @@
+package budgetplannerapp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+// Monthly Rollup Cache
+// Per-user monthly category totals read back from Transactions. Misses are filled by
+// one server-side GROUP BY user_id, category, month over the whole range of missing
+// months, so a year of history is one query rather than a scan per view; months with
+// no rows are cached too. Entries are keyed by (userId, yearMonth) packed into a long
+// in an open-addressing table with no boxing. They expire after TTL_NANOS, and when
+// the table is full a few sampled entries compete and the least recently used goes.
+// The write paths invalidate the months they touch after committing. A load that
+// overlaps an invalidation is returned but not cached, so it cannot bring back
+// rows from before the write. Run the loader against an index on
+// Transactions (user_id, transaction_date) to keep each query a range seek.
+class MonthlyRollupCache {
+    public static final int MAX_ENTRIES = Integer.getInteger("budget.rollupCacheEntries", 4096);
+    public static final long TTL_NANOS = Long.getLong("budget.rollupCacheTtlSeconds", 300) * 1_000_000_000L;
+    // Unknown categories (addTransaction takes any) are summed here
+    public static final int OTHER = BudgetWriteBehind.CATEGORIES.length;
+
+    static final String LOAD_SQL =
+        "SELECT category, YEAR(transaction_date), MONTH(transaction_date), SUM(amount), COUNT(*) "
+        + "FROM Transactions WHERE user_id = ? AND transaction_date >= ? AND transaction_date < ? "
+        + "GROUP BY user_id, category, YEAR(transaction_date), MONTH(transaction_date)";
+
+    private static final int EVICTION_SAMPLES = 8;
+    private static final MonthlyRollupCache SHARED =
+        new MonthlyRollupCache(DBConnection::getConnection, MAX_ENTRIES, TTL_NANOS);
+
+    static {
+        gauge("rollups.cachedMonths", cache -> cache.size);
+        gauge("rollups.hits", cache -> cache.hits);
+        gauge("rollups.misses", cache -> cache.misses);
+        gauge("rollups.loads", cache -> cache.loads);
+        gauge("rollups.loadNanos", cache -> cache.loadNanos);
+        gauge("rollups.expirations", cache -> cache.expirations);
+        gauge("rollups.evictions", cache -> cache.evictions);
+        gauge("rollups.invalidations", cache -> cache.invalidations);
+    }
+
+    private final ConnectionPool.ConnectionFactory connections;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Guarded by this: linear probing over keys[]; a null entry marks a free slot
+    private final long[] keys;
+    private final Rollup[] entries;
+    private final int mask;
+    private int size;
+    private long clock;
+    private long generation;
+
+    // Metrics, guarded by this
+    private long hits;
+    private long misses;
+    private long loads;
+    private long loadNanos;
+    private long expirations;
+    private long evictions;
+    private long invalidations;
+
+    public MonthlyRollupCache(ConnectionPool.ConnectionFactory connections, int maxEntries, long ttlNanos) {
+        this.connections = connections;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlNanos;
+        int capacity = Integer.highestOneBit(Math.max(4, this.maxEntries * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.entries = new Rollup[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public static MonthlyRollupCache shared() {
+        return SHARED;
+    }
+
+    // Reads one of the shared cache's fields under its lock
+    private static void gauge(String name, ToLongFunction<MonthlyRollupCache> field) {
+        Metrics.gauge(name, () -> {
+            synchronized (SHARED) {
+                return field.applyAsLong(SHARED);
+            }
+        });
+    }
+
+    public static long key(int userId, YearMonth month) {
+        return (long) userId << 32 | monthIndex(month);
+    }
+
+    public Rollup get(int userId, YearMonth month) throws SQLException {
+        return getRange(userId, month, month)[0];
+    }
+
+    // Rollups for every month in [first, last], oldest first; at most one query for the misses
+    public Rollup[] getRange(int userId, YearMonth first, YearMonth last) throws SQLException {
+        int firstIndex = monthIndex(first);
+        int months = monthIndex(last) - firstIndex + 1;
+        if (months <= 0) {
+            throw new IllegalArgumentException("Empty month range " + first + " to " + last);
+        }
+        Rollup[] result = new Rollup[months];
+        int missingFrom = months;
+        int missingTo = -1;
+        long loadGeneration;
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (int i = 0; i < months; i++) {
+                result[i] = lookup((long) userId << 32 | (firstIndex + i), now);
+                if (result[i] == null) {
+                    missingFrom = Math.min(missingFrom, i);
+                    missingTo = i;
+                }
+            }
+            loadGeneration = generation;
+        }
+        if (missingTo < 0) {
+            return result;
+        }
+
+        long start = System.nanoTime();
+        Rollup[] loaded = load(userId, firstIndex + missingFrom, missingTo - missingFrom + 1);
+        synchronized (this) {
+            loads++;
+            loadNanos += System.nanoTime() - start;
+            boolean current = generation == loadGeneration;
+            for (int i = missingFrom; i <= missingTo; i++) {
+                if (result[i] == null) {
+                    result[i] = loaded[i - missingFrom];
+                    if (current) {
+                        store(result[i]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Called by write paths once their rows are committed
+    public synchronized void invalidate(int userId, YearMonth month) {
+        generation++;
+        invalidations++;
+        int slot = find(key(userId, month));
+        if (slot >= 0) {
+            remove(slot);
+        }
+    }
+
+    public void invalidate(int userId, LocalDate date) {
+        invalidate(userId, YearMonth.from(date));
+    }
+
+    // For writes that span many months, e.g. a bulk import
+    public synchronized void invalidateUser(int userId) {
+        generation++;
+        invalidations++;
+        for (int slot = 0; slot <= mask; slot++) {
+            // Backward shifts can move a later entry into this slot, so look again before moving on
+            while (entries[slot] != null && entries[slot].userId == userId) {
+                remove(slot);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        Arrays.fill(entries, null);
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private Rollup lookup(long key, long now) {
+        int slot = find(key);
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        Rollup rollup = entries[slot];
+        if (now - rollup.loadedAt > ttlNanos) {
+            remove(slot);
+            expirations++;
+            misses++;
+            return null;
+        }
+        rollup.lastUsed = ++clock;
+        hits++;
+        return rollup;
+    }
+
+    private void store(Rollup rollup) {
+        long key = (long) rollup.userId << 32 | rollup.monthIndex;
+        int slot = find(key);
+        if (slot >= 0) {
+            entries[slot] = rollup;
+        } else {
+            if (size >= maxEntries) {
+                evictOne();
+            }
+            slot = (int) mix(key) & mask;
+            while (entries[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            entries[slot] = rollup;
+            size++;
+        }
+        rollup.lastUsed = ++clock;
+    }
+
+    // Approximate LRU: the oldest of a few occupied slots near a random point, expired ones first
+    private void evictOne() {
+        long now = System.nanoTime();
+        int slot = ThreadLocalRandom.current().nextInt(mask + 1);
+        int victim = -1;
+        for (int sampled = 0; sampled < EVICTION_SAMPLES; slot = (slot + 1) & mask) {
+            Rollup candidate = entries[slot];
+            if (candidate == null) {
+                continue;
+            }
+            sampled++;
+            if (now - candidate.loadedAt > ttlNanos) {
+                victim = slot;
+                break;
+            }
+            if (victim < 0 || candidate.lastUsed < entries[victim].lastUsed) {
+                victim = slot;
+            }
+        }
+        remove(victim);
+        evictions++;
+    }
+
+    private int find(long key) {
+        int slot = (int) mix(key) & mask;
+        while (entries[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void remove(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (entries[next] != null) {
+            int home = (int) mix(keys[next]) & mask;
+            // Move the entry back if the hole lies between its home slot and where it sits now
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                entries[hole] = entries[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        entries[hole] = null;
+        size--;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    private Rollup[] load(int userId, int firstIndex, int months) throws SQLException {
+        long loadedAt = System.nanoTime();
+        Rollup[] loaded = new Rollup[months];
+        for (int i = 0; i < months; i++) {
+            loaded[i] = new Rollup(userId, firstIndex + i, loadedAt);
+        }
+        try (Connection conn = connections.create();
+             PreparedStatement stmt = conn.prepareStatement(LOAD_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, Timestamp.valueOf(month(firstIndex).atDay(1).atStartOfDay()));
+            stmt.setTimestamp(3, Timestamp.valueOf(month(firstIndex + months).atDay(1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int i = rs.getInt(2) * 12 + rs.getInt(3) - 1 - firstIndex;
+                    if (i < 0 || i >= months) {
+                        continue;
+                    }
+                    BigDecimal sum = rs.getBigDecimal(4);
+                    loaded[i].add(category(rs.getString(1)),
+                        sum == null ? 0 : sum.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact(),
+                        rs.getLong(5));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static int category(String name) {
+        for (int category = 0; category < BudgetWriteBehind.CATEGORIES.length; category++) {
+            if (BudgetWriteBehind.CATEGORIES[category].equalsIgnoreCase(name)) {
+                return category;
+            }
+        }
+        return OTHER;
+    }
+
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static YearMonth month(int monthIndex) {
+        return YearMonth.of(Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1);
+    }
+
+    // One user's totals for one month, in cents. Immutable once cached.
+    public static class Rollup {
+        private final int userId;
+        private final int monthIndex;
+        private final long loadedAt;
+        private final long[] cents = new long[OTHER + 1];
+        private final long[] counts = new long[OTHER + 1];
+        private long lastUsed; // guarded by the cache
+
+        Rollup(int userId, int monthIndex, long loadedAt) {
+            this.userId = userId;
+            this.monthIndex = monthIndex;
+            this.loadedAt = loadedAt;
+        }
+
+        private void add(int category, long sumCents, long count) {
+            cents[category] = Money.add(cents[category], sumCents);
+            counts[category] += count;
+        }
+
+        public int getUserId() { return userId; }
+        public YearMonth getMonth() { return month(monthIndex); }
+        public long getCents(int category) { return cents[category]; }
+        public long getCount(int category) { return counts[category]; }
+
+        public long getIncomeCents() {
+            return cents[BudgetRecordStore.INCOME];
+        }
+
+        public long getExpenseCents() {
+            long total = 0;
+            for (int category = BudgetRecordStore.INCOME + 1; category <= OTHER; category++) {
+                total = Money.add(total, cents[category]);
+            }
+            return total;
+        }
+
+        public boolean isEmpty() {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package budgetplannerapp;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import javax.swing.AbstractButton;
+
+// Rounded Background Paint Cache
+// ModernButton and RoundedPanel used to antialias a fillRoundRect on every repaint.
+// Their backgrounds are a solid colour with rounded corners, so one small image per
+// (corner arc, colour, screen scale) is enough: the four corners are copied from it
+// and the rest is plain rectangle fills (a nine-slice with solid edges). Hover is
+// just the other colour, and any component size reuses the same image.
+// Images come from the screen's GraphicsConfiguration, so Java2D keeps them in video
+// memory where it can; that gives VolatileImage speed without handling lost contents.
+final class PaintCache {
+    private static final int MAX_IMAGES = 64;
+
+    private static final Map<Key, BufferedImage> IMAGES = new LinkedHashMap<Key, BufferedImage>(MAX_IMAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+    private static long hits;
+    private static long misses;
+
+    private PaintCache() {}
+
+    // Same result as fillRoundRect(0, 0, width, height, arc, arc) with antialiasing on
+    static void paintRoundRect(Graphics g, int width, int height, int arc, Color color) {
+        Graphics2D g2 = (Graphics2D) g;
+        int corner = (arc + 1) / 2;
+        int side = 2 * corner + 1;
+        AffineTransform transform = g2.getTransform();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        if (width < side || height < side || !isWholeScale(transform)) {
+            // Too small to slice, or a fractional/rotated transform where slices would
+            // not line up with device pixels: draw it the old way
+            Graphics2D direct = (Graphics2D) g2.create();
+            direct.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            direct.setColor(color);
+            direct.fillRoundRect(0, 0, width, height, arc, arc);
+            direct.dispose();
+            return;
+        }
+
+        BufferedImage image = image(g2, new Key(arc, color.getRGB(), scaleX, scaleY), side);
+        // Corners are copied pixel for pixel (source in device pixels, destination in
+        // component units); the straight edges are fully covered, so plain fills match
+        int cx = (int) (corner * scaleX);
+        int cy = (int) (corner * scaleY);
+        int iw = image.getWidth();
+        int ih = image.getHeight();
+        int right = width - corner;
+        int bottom = height - corner;
+
+        g2.drawImage(image, 0, 0, corner, corner, 0, 0, cx, cy, null);
+        g2.drawImage(image, right, 0, width, corner, iw - cx, 0, iw, cy, null);
+        g2.drawImage(image, 0, bottom, corner, height, 0, ih - cy, cx, ih, null);
+        g2.drawImage(image, right, bottom, width, height, iw - cx, ih - cy, iw, ih, null);
+
+        Color previous = g2.getColor();
+        g2.setColor(color);
+        g2.fillRect(corner, 0, right - corner, height);
+        g2.fillRect(0, corner, corner, bottom - corner);
+        g2.fillRect(right, corner, corner, bottom - corner);
+        g2.setColor(previous);
+    }
+
+    private static boolean isWholeScale(AffineTransform transform) {
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        return transform.getShearX() == 0 && transform.getShearY() == 0
+            && scaleX >= 1 && scaleY >= 1 && scaleX == Math.rint(scaleX) && scaleY == Math.rint(scaleY)
+            && transform.getTranslateX() == Math.rint(transform.getTranslateX())
+            && transform.getTranslateY() == Math.rint(transform.getTranslateY());
+    }
+
+    private static synchronized BufferedImage image(Graphics2D g2, Key key, int side) {
+        BufferedImage image = IMAGES.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        misses++;
+        int width = (int) Math.round(side * key.scaleX);
+        int height = (int) Math.round(side * key.scaleY);
+        GraphicsConfiguration config = g2.getDeviceConfiguration();
+        image = config != null
+            ? config.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D ig = image.createGraphics();
+        ig.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        ig.scale(key.scaleX, key.scaleY);
+        ig.setColor(new Color(key.rgb, true));
+        ig.fillRoundRect(0, 0, side, side, key.arc, key.arc);
+        ig.dispose();
+        IMAGES.put(key, image);
+        return image;
+    }
+
+    static synchronized String describe() {
+        return String.format("%d cached backgrounds, %,d hits, %,d misses", IMAGES.size(), hits, misses);
+    }
+
+    private static final class Key {
+        final int arc;
+        final int rgb;
+        final double scaleX;
+        final double scaleY;
+
+        Key(int arc, int rgb, double scaleX, double scaleY) {
+            this.arc = arc;
+            this.rgb = rgb;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return arc == other.arc && rgb == other.rgb && scaleX == other.scaleX && scaleY == other.scaleY;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(arc, rgb, scaleX, scaleY);
+        }
+    }
+
+    // Paint time per component, switched on with -Dbudget.paintStats=true and
+    // printed on exit. Off by default, when it costs one boolean check per paint.
+    static final class Stats {
+        static final boolean ENABLED = Boolean.getBoolean("budget.paintStats");
+        private static final int REPORT_LINES = 20;
+        private static final Map<Component, long[]> TIMES = new WeakHashMap<>(); // count, total, max
+
+        static {
+            if (ENABLED) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report()), "paint-stats"));
+            }
+        }
+
+        private Stats() {}
+
+        static long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        static void record(Component component, long start) {
+            if (!ENABLED) {
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+            synchronized (TIMES) {
+                long[] times = TIMES.computeIfAbsent(component, c -> new long[3]);
+                times[0]++;
+                times[1] += elapsed;
+                times[2] = Math.max(times[2], elapsed);
+            }
+        }
+
+        // Slowest components by total paint time
+        static String report() {
+            List<Map.Entry<Component, long[]>> entries;
+            synchronized (TIMES) {
+                entries = new ArrayList<>(TIMES.entrySet());
+            }
+            entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+            StringBuilder out = new StringBuilder("Paint times (" + describe() + ")\n");
+            for (Map.Entry<Component, long[]> entry : entries.subList(0, Math.min(REPORT_LINES, entries.size()))) {
+                long[] times = entry.getValue();
+                out.append(String.format("  %-40s %,8d paints  avg %7.1f us  max %8.1f us%n",
+                    label(entry.getKey()), times[0], times[1] / 1e3 / times[0], times[2] / 1e3));
+            }
+            return out.toString();
+        }
+
+        private static String label(Component component) {
+            String name = component.getClass().getSimpleName();
+            if (component instanceof AbstractButton) {
+                return name + " \"" + ((AbstractButton) component).getText() + "\"";
+            }
+            return component.getName() != null ? name + " " + component.getName()
+                : name + " " + component.getWidth() + "x" + component.getHeight();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package budgetplannerapp;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+
+// Record Change Bus
+// Tells views that the record store changed without each one rebuilding on every
+// write. Changes published between two deliveries are merged into one Change
+// (appended rows become a single row range), and listeners hear about it on the EDT at most updatesPerSecond times a second.
+// A save is delivered at once; a burst of saves or an import costs a few repaints.
+class RecordChangeBus {
+    public static final int DEFAULT_UPDATES_PER_SECOND = Integer.getInteger("budget.uiUpdatesPerSecond", 4);
+
+    public interface Listener {
+        void recordsChanged(Change change);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final long intervalNanos;
+    private final javax.swing.Timer timer;
+    private Change pending;
+    private long lastDelivery;
+
+    public RecordChangeBus() {
+        this(DEFAULT_UPDATES_PER_SECOND);
+    }
+
+    public RecordChangeBus(int updatesPerSecond) {
+        if (updatesPerSecond <= 0) {
+            throw new IllegalArgumentException("Updates per second must be positive: " + updatesPerSecond);
+        }
+        this.intervalNanos = 1_000_000_000L / updatesPerSecond;
+        this.lastDelivery = System.nanoTime() - intervalNanos;
+        this.timer = new javax.swing.Timer(0, e -> deliver());
+        this.timer.setRepeats(false);
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // One row appended at the given row number
+    public void appended(int row) {
+        publish(row, row + 1);
+    }
+
+    // Rows [fromRow, toRow) appended in one go
+    public void appendedAll(int fromRow, int toRow) {
+        if (toRow > fromRow) {
+            publish(fromRow, toRow);
+        }
+    }
+
+    // May be called from any thread
+    private synchronized void publish(int fromRow, int toRow) {
+        boolean scheduled = pending != null;
+        pending = pending == null ? new Change(fromRow, toRow, 1) : pending.merge(fromRow, toRow);
+        if (!scheduled) {
+            long wait = lastDelivery + intervalNanos - System.nanoTime();
+            if (wait <= 0) {
+                SwingUtilities.invokeLater(this::deliver);
+            } else {
+                SwingUtilities.invokeLater(() -> {
+                    timer.setInitialDelay((int) Math.max(1, wait / 1_000_000));
+                    timer.restart();
+                });
+            }
+        }
+    }
+
+    private void deliver() {
+        Change change;
+        synchronized (this) {
+            change = pending;
+            pending = null;
+            if (change == null) {
+                return;
+            }
+            lastDelivery = System.nanoTime();
+        }
+        for (Listener listener : listeners) {
+            listener.recordsChanged(change);
+        }
+    }
+
+    // Everything that happened since the previous delivery
+    public static class Change {
+        private final int fromRow;
+        private final int toRow;
+        private final int events;
+
+        Change(int fromRow, int toRow, int events) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.events = events;
+        }
+
+        Change merge(int from, int to) {
+            return new Change(Math.min(fromRow, from), Math.max(toRow, to), events + 1);
+        }
+
+        public int getFromRow() { return fromRow; }
+        public int getToRow() { return toRow; }
+        public int getAppendedRows() { return toRow - fromRow; }
+        public int getEvents() { return events; }
+    }
+}
@@ -0,0 +1,359 @@
+package budgetplannerapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Record Fingerprints
+// A set of 64-bit hashes of (date, six amounts), one per row of a user's history,
+// used to drop rows an import has already brought in. The table is open addressing
+// with linear probing in a direct buffer, so ten million rows cost 128 MB outside
+// the heap and no objects. 0 marks an empty slot. Two different rows share a
+// fingerprint with odds around n^2 / 2^65 (about 3 in a million at 10M rows).
+// Saved next to the snapshot as the raw table:
+//   "BUDGFPRT", int version, int rows covered, long entries, long capacity,
+//   long[capacity] slots, int CRC32 of the slots
+// A missing, damaged or stale file is rebuilt from the store on open.
+class RecordFingerprints {
+    public static final int VERSION = 1;
+
+    private static final byte[] FILE_MAGIC = "BUDGFPRT".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 32;
+    private static final int MIN_CAPACITY = 1 << 12;
+    // 1 GB of slots; byte offsets stay within an int
+    private static final int MAX_CAPACITY = 1 << 27;
+    private static final long EMPTY = 0;
+    // Probes are grouped into 4096 slot ranges, each small enough to stay in cache
+    private static final int PROBE_PARTITION_BITS = 12;
+    private static final int PROBE_SLICE = 64 * 1024;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int mask;
+    private long size;
+
+    public RecordFingerprints() {
+        this(MIN_CAPACITY);
+    }
+
+    private RecordFingerprints(int capacity) {
+        allocate(capacity);
+    }
+
+    // Fingerprints every row of the store
+    public static RecordFingerprints of(BudgetRecordStore store) {
+        RecordFingerprints fingerprints = new RecordFingerprints(capacityFor(store.size()));
+        fingerprints.addRows(store, 0, store.size());
+        return fingerprints;
+    }
+
+    public static File fileFor(BudgetSnapshot snapshot) {
+        return new File(snapshot.getFile().getPath() + ".fingerprints");
+    }
+
+    // Reads the saved set and adds rows the file does not cover; rebuilds when it cannot be used
+    public static RecordFingerprints open(File file, BudgetRecordStore store) {
+        if (file.isFile()) {
+            try {
+                RecordFingerprints fingerprints = new RecordFingerprints(MIN_CAPACITY);
+                int covered = fingerprints.read(file);
+                if (covered <= store.size()) {
+                    fingerprints.addRows(store, covered, store.size());
+                    return fingerprints;
+                }
+                System.err.println("Fingerprints in " + file + " cover rows that are gone; rebuilding");
+            } catch (IOException e) {
+                System.err.println("Could not read record fingerprints, rebuilding: " + e.getMessage());
+            }
+        }
+        return of(store);
+    }
+
+    public static long fingerprint(BudgetRecordStore store, int row) {
+        int epochDay = store.getEpochDay(row);
+        long h = 0x6A09E667F3BCC908L;
+        h = mix(h, epochDay != BudgetRecordStore.IRREGULAR_DATE ? epochDay
+            : (long) store.getDate(row).hashCode() << 32 | store.getDate(row).length());
+        for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+            h = mix(h, store.getCents(column, row));
+        }
+        // murmur3's 64-bit finaliser
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+
+    private static long mix(long h, long value) {
+        h ^= value * 0xC2B2AE3D27D4EB4FL;
+        return Long.rotateLeft(h, 31) * 0x9E3779B97F4A7C15L;
+    }
+
+    public synchronized boolean contains(long fingerprint) {
+        return containsLocked(fingerprint);
+    }
+
+    private boolean containsLocked(long fingerprint) {
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            long current = slots.getLong(slot << 3);
+            if (current == fingerprint) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // True if the fingerprint was not in the set yet
+    public synchronized boolean add(long fingerprint) {
+        return insert(fingerprint);
+    }
+
+    public void addRows(BudgetRecordStore store, int from, int to) {
+        long[] fingerprints = new long[to - from];
+        Arrays.parallelSetAll(fingerprints, i -> fingerprint(store, from + i));
+        insertAll(fingerprints);
+    }
+
+    // Picks the rows of an import that are neither in this set nor earlier in the import.
+    // Nothing is added here, so a cancelled import leaves no trace; call addAll with the
+    // result on the thread that appends its rows. Rows are hashed in parallel and probed
+    // in slot order, so the probes walk the table instead of missing the cache on each row;
+    // a stable sort keeps the first of several equal rows.
+    public NewRows findNew(BudgetRecordStore imported) {
+        int rows = imported.size();
+        long[] fingerprints = new long[rows];
+        Arrays.parallelSetAll(fingerprints, row -> fingerprint(imported, row));
+
+        RecordFingerprints seen = new RecordFingerprints(capacityFor(rows));
+        int[] order;
+        synchronized (this) {
+            order = probeOrder(fingerprints, rows, Math.min(mask, seen.mask));
+        }
+        boolean[] duplicate = new boolean[rows];
+        int duplicates = 0;
+        for (int first = 0; first < rows; first += PROBE_SLICE) {
+            int end = Math.min(rows, first + PROBE_SLICE);
+            // Saves may add fingerprints between slices; each slice holds the lock briefly
+            synchronized (this) {
+                for (int i = first; i < end; i++) {
+                    int row = order[i];
+                    long fingerprint = fingerprints[row];
+                    if (containsLocked(fingerprint) || !seen.insert(fingerprint)) {
+                        duplicate[row] = true;
+                        duplicates++;
+                    }
+                }
+            }
+        }
+        if (duplicates == 0) {
+            return new NewRows(imported, fingerprints, 0);
+        }
+
+        // Copy runs of new rows rather than one row at a time
+        BudgetRecordStore records = new BudgetRecordStore();
+        long[] fresh = new long[rows - duplicates];
+        int kept = 0;
+        int runStart = 0;
+        for (int row = 0; row < rows; row++) {
+            if (duplicate[row]) {
+                records.appendRows(imported, runStart, row);
+                runStart = row + 1;
+            } else {
+                fresh[kept++] = fingerprints[row];
+            }
+        }
+        records.appendRows(imported, runStart, rows);
+        return new NewRows(records, fresh, duplicates);
+    }
+
+    public void addAll(NewRows rows) {
+        insertAll(rows.fingerprints);
+    }
+
+    // Grows once up front, then inserts in slot order
+    private synchronized void insertAll(long[] fingerprints) {
+        while (size + fingerprints.length > capacity - (capacity >>> 2) && capacity < MAX_CAPACITY) {
+            grow();
+        }
+        int[] order = probeOrder(fingerprints, fingerprints.length, mask);
+        for (int row : order) {
+            insert(fingerprints[row]);
+        }
+    }
+
+    // Indexes of fingerprints sorted (stably) by the top PROBE_PARTITION_BITS of their slot under mask
+    private static int[] probeOrder(long[] fingerprints, int count, int mask) {
+        int shift = Math.max(0, Integer.bitCount(mask) - PROBE_PARTITION_BITS);
+        int[] starts = new int[(mask >>> shift) + 2];
+        for (int i = 0; i < count; i++) {
+            starts[(((int) fingerprints[i] & mask) >>> shift) + 1]++;
+        }
+        for (int partition = 1; partition < starts.length; partition++) {
+            starts[partition] += starts[partition - 1];
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[starts[((int) fingerprints[i] & mask) >>> shift]++] = i;
+        }
+        return order;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    // Off-heap bytes held by the table
+    public synchronized long estimateBytes() {
+        return (long) capacity * Long.BYTES;
+    }
+
+    // Writes the table for a store of the given size, replacing the file atomically
+    public synchronized void save(File file, int rowsCovered) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(FILE_MAGIC).putInt(VERSION).putInt(rowsCovered).putLong(size).putLong(capacity).flip();
+            long position = writeFully(channel, header, 0);
+            CRC32 crc = new CRC32();
+            ByteBuffer table = slots.duplicate();
+            table.clear();
+            crc.update(table.duplicate());
+            position += writeFully(channel, table, position);
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue()).flip();
+            writeFully(channel, trailer, position);
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns the number of store rows the file covers
+    private int read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            byte[] magic = new byte[FILE_MAGIC.length];
+            header.get(magic);
+            int version = header.getInt();
+            int covered = header.getInt();
+            long entries = header.getLong();
+            long savedCapacity = header.getLong();
+            if (!Arrays.equals(magic, FILE_MAGIC) || version != VERSION || covered < 0 || savedCapacity < MIN_CAPACITY
+                    || savedCapacity > MAX_CAPACITY || Long.bitCount(savedCapacity) != 1 || entries < 0 || entries >= savedCapacity
+                    || channel.size() != HEADER_SIZE + savedCapacity * Long.BYTES + 4) {
+                throw new IOException(file + " is not a usable fingerprint file");
+            }
+            allocate((int) savedCapacity);
+            ByteBuffer table = slots.duplicate();
+            table.clear();
+            readFully(channel, table, HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(table.duplicate());
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, trailer, HEADER_SIZE + savedCapacity * Long.BYTES);
+            if ((int) crc.getValue() != trailer.getInt()) {
+                throw new IOException("Checksum mismatch in " + file);
+            }
+            size = entries;
+            return covered;
+        }
+    }
+
+    private boolean insert(long fingerprint) {
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            long current = slots.getLong(slot << 3);
+            if (current == fingerprint) {
+                return false;
+            }
+            if (current == EMPTY) {
+                slots.putLong(slot << 3, fingerprint);
+                if (++size > capacity - (capacity >>> 2)) {
+                    grow();
+                }
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Doubles the table once it is three quarters full
+    private void grow() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("Too many record fingerprints: " + size);
+        }
+        ByteBuffer old = slots;
+        int oldCapacity = capacity;
+        allocate(capacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            long fingerprint = old.getLong(i << 3);
+            if (fingerprint != EMPTY) {
+                int slot = (int) fingerprint & mask;
+                while (slots.getLong(slot << 3) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.putLong(slot << 3, fingerprint);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        // Fixed byte order so a saved table reads back the same on any machine
+        slots = ByteBuffer.allocateDirect(newCapacity * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+    private static int capacityFor(int rows) {
+        long wanted = Math.max(MIN_CAPACITY, (long) rows * 4 / 3 + 1);
+        return (int) Math.min(MAX_CAPACITY, Long.highestOneBit(wanted - 1) << 1);
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of fingerprint file");
+            }
+        }
+        buffer.flip();
+    }
+
+    // Rows of an import not seen before, with their fingerprints
+    public static class NewRows {
+        private final BudgetRecordStore records;
+        private final long[] fingerprints;
+        private final int duplicates;
+
+        NewRows(BudgetRecordStore records, long[] fingerprints, int duplicates) {
+            this.records = records;
+            this.fingerprints = fingerprints;
+            this.duplicates = duplicates;
+        }
+
+        public BudgetRecordStore getRecords() { return records; }
+        public int getDuplicates() { return duplicates; }
+    }
+}
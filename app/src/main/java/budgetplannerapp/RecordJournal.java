@@ -0,0 +1,380 @@
+package budgetplannerapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Record Journal
+// Write-ahead log in front of a user's history snapshot. Every row appended to the
+// store is copied into an entry (little-endian):
+//   long row, int epoch day, long[6] amounts in cents,
+//   int irregular-date length, its UTF-8 text, int CRC32 of the rest
+// so most entries are MIN_ENTRY_SIZE bytes and irregular dates come back exactly.
+// Entries collect in memory and one shared thread writes and forces them for every
+// journal at once (group commit) every COMMIT_INTERVAL_MILLIS, so a crash loses at
+// most that much. Once a journal passes COMPACT_BYTES its rows are synced into the
+// snapshot as one block and the journal starts over. Opening replays entries past the
+// end of the snapshot and stops at the first torn or corrupt one.
+class RecordJournal {
+    public static final int MIN_ENTRY_SIZE = 68;
+    public static final long COMMIT_INTERVAL_MILLIS = Long.getLong("budget.journalCommitMillis", 20);
+    public static final long COMPACT_BYTES = 16 << 20;
+
+    private static final int DATE_LENGTH_OFFSET = 60;
+    private static final int DATE_OFFSET = 64;
+    private static final byte[] NO_DATE = new byte[0];
+    // Appends this far ahead of the last commit ask for an early one
+    private static final int EARLY_COMMIT_BYTES = 1 << 20;
+    private static final int APPEND_SLICE_ROWS = 4096;
+    private static final int ENTRY_READ_BYTES = MIN_ENTRY_SIZE * 4096;
+    // Write plus force of one group commit
+    private static final Metrics.Histogram COMMIT_NANOS = Metrics.histogram("journal.commit");
+    private static final Metrics.Counter ENTRIES = Metrics.counter("journal.entries");
+    private static final Metrics.Counter COMPACTIONS = Metrics.counter("journal.compactions");
+    private static final Metrics.Counter REPLAYED = Metrics.counter("journal.replayedRows");
+
+    private static final ScheduledExecutorService COMMITTER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-group-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private final BudgetSnapshot snapshot;
+    private final BudgetRecordStore store;
+    private final FileChannel channel;
+    private final ScheduledFuture<?> schedule;
+
+    // Guarded by this: entries not yet handed to the file
+    private ByteBuffer pending = newBuffer(64 * 1024);
+    private int pendingUpTo;
+    private boolean commitRequested;
+
+    // Guarded by channel: the file and what is known to be on disk
+    private ByteBuffer writing = newBuffer(64 * 1024);
+    private volatile int durableUpTo;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private final int replayed;
+
+    private RecordJournal(File file, BudgetSnapshot snapshot, BudgetRecordStore store) throws IOException {
+        this.file = file;
+        this.snapshot = snapshot;
+        this.store = store;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            this.replayed = replay();
+            REPLAYED.add(replayed);
+            this.pendingUpTo = store.size();
+            this.durableUpTo = store.size();
+            if (channel.size() > 0) {
+                compactLocked(); // fold replayed rows into the snapshot, drop the torn tail
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.schedule = COMMITTER.scheduleWithFixedDelay(this::commitQuietly,
+            COMMIT_INTERVAL_MILLIS, COMMIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Replays the journal next to the snapshot into a store freshly loaded from it
+    public static RecordJournal open(BudgetSnapshot snapshot, BudgetRecordStore store) throws IOException {
+        return new RecordJournal(fileFor(snapshot), snapshot, store);
+    }
+
+    public static File fileFor(BudgetSnapshot snapshot) {
+        return new File(snapshot.getFile().getPath() + ".journal");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Queues rows [from, to) of the store, which must already hold them. Never waits on the disk.
+    public void append(int from, int to) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed: " + file);
+        }
+        for (int first = from; first < to; first += APPEND_SLICE_ROWS) {
+            int end = Math.min(to, first + APPEND_SLICE_ROWS);
+            boolean early;
+            synchronized (this) {
+                if (first != pendingUpTo) {
+                    throw new IllegalStateException("Journal expected row " + pendingUpTo + " but got " + first);
+                }
+                pending = ensureCapacity(pending, (end - first) * MIN_ENTRY_SIZE);
+                for (int row = first; row < end; row++) {
+                    pending = encode(row, pending);
+                }
+                pendingUpTo = end;
+                early = pending.position() >= EARLY_COMMIT_BYTES && !commitRequested;
+                commitRequested |= early;
+            }
+            if (early) {
+                COMMITTER.execute(this::commitQuietly);
+            }
+        }
+        ENTRIES.add(to - from);
+    }
+
+    // Rows below this are forced to disk, in the journal or the snapshot
+    public int getDurableRows() {
+        return durableUpTo;
+    }
+
+    public int getReplayedRows() {
+        return replayed;
+    }
+
+    // Writes and forces everything appended so far
+    public void commit() throws IOException {
+        synchronized (channel) {
+            if (failure != null) {
+                IOException previous = failure;
+                failure = null;
+                throw previous;
+            }
+            ByteBuffer batch;
+            int upTo;
+            synchronized (this) {
+                batch = pending;
+                upTo = pendingUpTo;
+                pending = writing;
+                pending.clear();
+                writing = batch;
+                commitRequested = false;
+            }
+            batch.flip();
+            if (!batch.hasRemaining()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                long position = channel.size();
+                while (batch.hasRemaining()) {
+                    position += channel.write(batch, position);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                requeue(batch);
+                throw e;
+            }
+            durableUpTo = upTo;
+            COMMIT_NANOS.recordSince(start);
+            if (channel.size() >= COMPACT_BYTES) {
+                compactLocked();
+            }
+        }
+    }
+
+    // Commits, then moves every journaled row into the snapshot and empties the journal
+    public void compact() throws IOException {
+        synchronized (channel) {
+            commit();
+            compactLocked();
+        }
+    }
+
+    // Compacts and stops the group commits; the journal file is left empty
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        schedule.cancel(false);
+        synchronized (channel) {
+            try {
+                compact();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void commitQuietly() {
+        if (closed) {
+            return;
+        }
+        try {
+            commit();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Could not write budget journal " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Called holding channel: every written entry is below durableUpTo, so once the snapshot
+    // has those rows the journal can be cut back to nothing
+    private void compactLocked() throws IOException {
+        snapshot.sync(store, durableUpTo);
+        channel.truncate(0);
+        channel.force(true);
+        COMPACTIONS.increment();
+    }
+
+    // A failed write puts its entries back in front of anything appended since
+    private synchronized void requeue(ByteBuffer batch) {
+        batch.rewind();
+        ByteBuffer merged = newBuffer(batch.remaining() + pending.position() + 64 * 1024);
+        merged.put(batch);
+        pending.flip();
+        merged.put(pending);
+        pending = merged;
+        writing = newBuffer(64 * 1024);
+    }
+
+    // Returns the buffer the entry went into, grown if its irregular date did not fit
+    private ByteBuffer encode(int row, ByteBuffer target) {
+        int epochDay = store.getEpochDay(row);
+        byte[] date = epochDay == BudgetRecordStore.IRREGULAR_DATE
+            ? store.getDate(row).getBytes(StandardCharsets.UTF_8) : NO_DATE;
+        target = ensureCapacity(target, MIN_ENTRY_SIZE + date.length);
+        int start = target.position();
+        target.putLong(row).putInt(epochDay);
+        for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+            target.putLong(store.getCents(column, row));
+        }
+        target.putInt(date.length).put(date);
+        CRC32 crc = new CRC32();
+        ByteBuffer covered = target.duplicate();
+        covered.position(start).limit(target.position());
+        crc.update(covered);
+        return target.putInt((int) crc.getValue());
+    }
+
+    // Appends the entries that continue the store; rows it already has are skipped
+    private int replay() throws IOException {
+        EntryReader reader = new EntryReader(channel);
+        int added = 0;
+        for (ByteBuffer entry; (entry = reader.next()) != null; ) {
+            long row = entry.getLong(entry.position());
+            if (row < store.size()) {
+                continue; // already in the snapshot
+            }
+            if (row > store.size()) {
+                break; // a gap; later rows would land in the wrong place
+            }
+            replayEntry(entry);
+            added++;
+        }
+        return added;
+    }
+
+    private void replayEntry(ByteBuffer entry) throws IOException {
+        int start = entry.position();
+        int epochDay = entry.getInt(start + 8);
+        long[] cents = new long[BudgetRecordStore.AMOUNT_COLUMNS];
+        for (int column = 0; column < cents.length; column++) {
+            cents[column] = entry.getLong(start + 12 + column * 8);
+        }
+        try {
+            if (epochDay == BudgetRecordStore.IRREGULAR_DATE) {
+                byte[] text = new byte[entry.getInt(start + DATE_LENGTH_OFFSET)];
+                entry.position(start + DATE_OFFSET);
+                entry.get(text);
+                store.appendCents(new String(text, StandardCharsets.UTF_8),
+                    cents[0], cents[1], cents[2], cents[3], cents[4], cents[5]);
+            } else {
+                store.appendCents(epochDay, cents[0], cents[1], cents[2], cents[3], cents[4], cents[5]);
+            }
+        } catch (ArithmeticException e) {
+            throw new IOException("Bad amount in journal " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer grown = newBuffer(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Walks the file front to back, one entry at a time
+    private static final class EntryReader {
+        private final FileChannel channel;
+        private final long size;
+        private long filePosition;
+        private ByteBuffer buffer = newBuffer(ENTRY_READ_BYTES);
+
+        EntryReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            buffer.limit(0);
+        }
+
+        // The next entry as a view positioned at its start, or null at the end of the
+        // file or at a torn or corrupt entry, since nothing after one can be trusted
+        ByteBuffer next() throws IOException {
+            if (!fill(DATE_OFFSET)) {
+                return null;
+            }
+            int start = buffer.position();
+            int dateLength = buffer.getInt(start + DATE_LENGTH_OFFSET);
+            long entrySize = MIN_ENTRY_SIZE + (long) dateLength;
+            if (dateLength < 0 || entrySize > buffer.remaining() + (size - filePosition) || !fill((int) entrySize)) {
+                return null;
+            }
+            start = buffer.position();
+            int crcAt = start + (int) entrySize - 4;
+            CRC32 crc = new CRC32();
+            ByteBuffer covered = buffer.duplicate();
+            covered.limit(crcAt);
+            crc.update(covered);
+            if ((int) crc.getValue() != buffer.getInt(crcAt)) {
+                return null;
+            }
+            ByteBuffer entry = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            entry.limit(crcAt + 4);
+            buffer.position(crcAt + 4);
+            return entry;
+        }
+
+        // Makes sure the buffer holds at least bytes unread bytes; false if the file ends first
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            if (buffer.remaining() + (size - filePosition) < bytes) {
+                return false;
+            }
+            if (buffer.capacity() < bytes) {
+                buffer = newBuffer(bytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + (size - filePosition)));
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer, filePosition);
+                if (read < 0) {
+                    buffer.flip();
+                    return false;
+                }
+                filePosition += read;
+            }
+            buffer.flip();
+            return true;
+        }
+    }
+}
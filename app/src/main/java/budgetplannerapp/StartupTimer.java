@@ -0,0 +1,40 @@
+package budgetplannerapp;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Startup Timer
+// Times the steps of opening a window and prints one line when its first frame
+// is painted, e.g. "Main window: first frame after 180 ms (history 42 ms, ...)".
+// Frames call firstFrame() from paint(); only the first call reports.
+class StartupTimer {
+    private final String window;
+    private final long start = System.nanoTime();
+    private final List<String> phases = new ArrayList<>();
+    private long last = start;
+    private boolean reported;
+
+    public StartupTimer(String window) {
+        this.window = window;
+    }
+
+    // Records the time since the previous phase (or since construction)
+    public void phase(String name) {
+        long now = System.nanoTime();
+        phases.add(name + " " + (now - last) / 1_000_000 + " ms");
+        last = now;
+    }
+
+    // Reports once and returns true on the first call
+    public boolean firstFrame() {
+        if (reported) {
+            return false;
+        }
+        reported = true;
+        System.out.println(String.format("%s: first frame after %d ms (%s), JVM up %d ms",
+            window, (System.nanoTime() - start) / 1_000_000, String.join(", ", phases),
+            ManagementFactory.getRuntimeMXBean().getUptime()));
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package budgetplannerapp;
+
+import java.sql.*;
+import java.util.List;
+
+// Bulk Transaction Writer
+// Persists many budgets at once as multi-row INSERT ... VALUES (...),(...)
+// statements. Each statement carries as many rows as the driver's parameter
+// limit allows, the statements of one chunk go out as a single JDBC batch,
+// and every chunk is committed on its own.
+class TransactionBulkWriter {
+    // SQL Server rejects more than 2100 parameters and 1000 VALUES rows per statement
+    public static final int SQL_SERVER_MAX_PARAMETERS = 2100;
+    public static final int MAX_VALUES_ROWS = 1000;
+    public static final int DEFAULT_RECORDS_PER_CHUNK = 5_000;
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO Transactions (user_id, category, amount, type, transaction_date) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?)";
+    private static final int PARAMETERS_PER_ROW = 5;
+    private static final int ROWS_PER_RECORD = BudgetWriteBehind.CATEGORIES.length;
+
+    private static final Metrics.Histogram CHUNK_NANOS = Metrics.histogram("db.bulkChunk");
+    private static final Metrics.Counter BULK_ROWS = Metrics.counter("db.bulkRows");
+
+    private final int rowsPerStatement;
+    private final int recordsPerChunk;
+
+    public TransactionBulkWriter() {
+        this(SQL_SERVER_MAX_PARAMETERS, DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    public TransactionBulkWriter(int maxParameters, int recordsPerChunk) {
+        // Keep one parameter of headroom below the driver limit
+        this.rowsPerStatement = Math.max(1, Math.min(MAX_VALUES_ROWS, (maxParameters - 1) / PARAMETERS_PER_ROW));
+        this.recordsPerChunk = Math.max(1, recordsPerChunk);
+    }
+
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    public int getRecordsPerChunk() {
+        return recordsPerChunk;
+    }
+
+    public BulkResult insertAll(Connection conn, int userId, List<? extends BudgetRecord> records) throws SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        int statements = 0;
+        int chunks = 0;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement full = conn.prepareStatement(insertSql(rowsPerStatement))) {
+            RowCursor cursor = new RowCursor(userId, records);
+            for (int first = 0; first < records.size(); first += recordsPerChunk) {
+                int end = Math.min(records.size(), first + recordsPerChunk);
+                cursor.seek(first, end);
+                long chunkStart = System.nanoTime();
+                try {
+                    // Full statements are batched together; the short tail gets its own SQL
+                    int remaining = (end - first) * ROWS_PER_RECORD;
+                    if (remaining >= rowsPerStatement) {
+                        while (remaining >= rowsPerStatement) {
+                            cursor.bind(full, rowsPerStatement);
+                            full.addBatch();
+                            remaining -= rowsPerStatement;
+                            statements++;
+                        }
+                        full.executeBatch();
+                    }
+                    if (remaining > 0) {
+                        try (PreparedStatement tail = conn.prepareStatement(insertSql(remaining))) {
+                            cursor.bind(tail, remaining);
+                            tail.executeUpdate();
+                            statements++;
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Bulk insert failed after " + rows + " rows: " + e.getMessage(),
+                        e.getSQLState(), e.getErrorCode(), e);
+                }
+                CHUNK_NANOS.recordSince(chunkStart);
+                BULK_ROWS.add((long) (end - first) * ROWS_PER_RECORD);
+                rows += (long) (end - first) * ROWS_PER_RECORD;
+                chunks++;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+            if (rows > 0) {
+                MonthlyRollupCache.shared().invalidateUser(userId); // committed chunks may span any month
+            }
+        }
+        return new BulkResult(rows, statements, chunks, System.nanoTime() - start);
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 1));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+
+    // Walks the records of a chunk one category row at a time, so a statement can
+    // end in the middle of a budget and the next one picks up where it stopped
+    private static class RowCursor {
+        private final int userId;
+        private final List<? extends BudgetRecord> records;
+        private int record;
+        private int end;
+        private int category;
+        private BudgetRecord current;
+        private Timestamp currentDate;
+
+        RowCursor(int userId, List<? extends BudgetRecord> records) {
+            this.userId = userId;
+            this.records = records;
+        }
+
+        void seek(int first, int end) {
+            this.record = first;
+            this.end = end;
+            this.category = 0;
+            this.current = null;
+        }
+
+        void bind(PreparedStatement stmt, int rows) throws SQLException {
+            int parameter = 1;
+            for (int i = 0; i < rows; i++) {
+                if (current == null) {
+                    if (record >= end) {
+                        throw new IllegalStateException("Row cursor ran past its chunk");
+                    }
+                    current = records.get(record);
+                    currentDate = BudgetWriteBehind.transactionDate(current.getDate());
+                }
+                stmt.setInt(parameter++, userId);
+                stmt.setString(parameter++, BudgetWriteBehind.CATEGORIES[category]);
+                stmt.setDouble(parameter++, amount(current, category));
+                stmt.setString(parameter++, category == 0 ? "income" : "expense");
+                stmt.setTimestamp(parameter++, currentDate);
+
+                if (++category == ROWS_PER_RECORD) {
+                    category = 0;
+                    current = null;
+                    record++;
+                }
+            }
+        }
+
+        private static double amount(BudgetRecord record, int category) {
+            switch (category) {
+                case 0: return record.getIncome();
+                case 1: return record.getFood();
+                case 2: return record.getRent();
+                case 3: return record.getTravel();
+                case 4: return record.getStudy();
+                default: return record.getEntertainment();
+            }
+        }
+    }
+
+    public static class BulkResult {
+        private final long rows;
+        private final int statements;
+        private final int chunks;
+        private final long elapsedNanos;
+
+        BulkResult(long rows, int statements, int chunks, long elapsedNanos) {
+            this.rows = rows;
+            this.statements = statements;
+            this.chunks = chunks;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() { return rows; }
+        public int getStatements() { return statements; }
+        public int getChunks() { return chunks; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d rows in %,d statements / %,d commits, %.2f s (%,.0f rows/sec)",
+                rows, statements, chunks, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package budgetplannerapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// User Session Store
+// One JVM can serve several users in turn (a shared workstation or kiosk). Each
+// user's records, totals, query index and analytics stay loaded after they log
+// out, so logging back in reuses them instead of reading the history again.
+// Sessions are found by userId under one of a few striped locks, so loading one
+// user never blocks another. When the loaded sessions outgrow the memory budget,
+// the least recently used ones nobody has open are saved to their snapshot and dropped.
+class UserSessionStore {
+    public static final long DEFAULT_BUDGET_BYTES = Long.getLong("budget.sessionMemoryMb", 256) << 20;
+
+    private static final int STRIPES = 16;
+    // Date index entries and amount buckets built over a loaded store
+    private static final int INDEX_BYTES_PER_ROW = 8;
+
+    private static final UserSessionStore SHARED = new UserSessionStore(DEFAULT_BUDGET_BYTES);
+
+    static {
+        Metrics.gauge("sessions.loaded", () -> SHARED.sessions.size());
+        Metrics.gauge("sessions.residentBytes", SHARED::getResidentBytes);
+        Metrics.gauge("sessions.hits", SHARED.hits::get);
+        Metrics.gauge("sessions.loads", SHARED.loads::get);
+        Metrics.gauge("sessions.evictions", SHARED.evictions::get);
+    }
+
+    private final long budgetBytes;
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong clock = new AtomicLong();
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserSessionStore(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public static UserSessionStore shared() {
+        return SHARED;
+    }
+
+    // Returns the user's session, loading it from the snapshot if it is not in memory.
+    // The session is kept until every open() is matched by a release().
+    public Session open(int userId) {
+        ReentrantLock stripe = stripeFor(userId);
+        Session session;
+        stripe.lock();
+        try {
+            session = sessions.get(userId);
+            if (session == null) {
+                session = load(userId);
+                sessions.put(userId, session);
+                loads.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            session.openCount++;
+            session.lastUsed = clock.incrementAndGet();
+        } finally {
+            stripe.unlock();
+        }
+        evictColdSessions();
+        return session;
+    }
+
+    public void release(Session session) {
+        ReentrantLock stripe = stripeFor(session.userId);
+        stripe.lock();
+        try {
+            if (session.openCount > 0) {
+                session.openCount--;
+            }
+            session.lastUsed = clock.incrementAndGet();
+        } finally {
+            stripe.unlock();
+        }
+        evictColdSessions();
+    }
+
+    public boolean isLoaded(int userId) {
+        return sessions.containsKey(userId);
+    }
+
+    public long getResidentBytes() {
+        long total = 0;
+        for (Session session : sessions.values()) {
+            total += session.estimateBytes();
+        }
+        return total;
+    }
+
+    // There is no accounts table yet, so each username (ignoring case) gets a stable id of its own
+    public static int userIdFor(String username) {
+        UUID id = UUID.nameUUIDFromBytes(username.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return (int) (id.getMostSignificantBits() >>> 33);
+    }
+
+    private ReentrantLock stripeFor(int userId) {
+        return stripes[Math.floorMod(userId, STRIPES)];
+    }
+
+    // Opens the saved history snapshot and replays its journal; a damaged file is set aside
+    // so saving can start afresh
+    private Session load(int userId) {
+        BudgetSnapshot history = new BudgetSnapshot(BudgetSnapshot.defaultFile(userId));
+        BudgetRecordStore records;
+        try {
+            records = history.load();
+        } catch (IOException e) {
+            System.err.println("Could not load budget history: " + e.getMessage());
+            File damaged = new File(history.getFile().getPath() + ".damaged");
+            if (!history.getFile().renameTo(damaged)) {
+                System.err.println("Could not move " + history.getFile() + " aside; history will not be saved");
+            }
+            records = new BudgetRecordStore();
+        }
+        RecordJournal journal = openJournal(history, records);
+        RecordFingerprints fingerprints = RecordFingerprints.open(RecordFingerprints.fileFor(history), records);
+        return new Session(userId, history, records, journal, fingerprints);
+    }
+
+    private static RecordJournal openJournal(BudgetSnapshot history, BudgetRecordStore records) {
+        try {
+            return RecordJournal.open(history, records);
+        } catch (IOException e) {
+            System.err.println("Could not replay budget journal: " + e.getMessage());
+            File journal = RecordJournal.fileFor(history);
+            File damaged = new File(journal.getPath() + ".damaged");
+            if (!journal.renameTo(damaged)) {
+                System.err.println("Could not move " + journal + " aside");
+            }
+        }
+        try {
+            return RecordJournal.open(history, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open budget journal for " + history.getFile(), e);
+        }
+    }
+
+    // Drops the coldest sessions nobody has open until the rest fit the budget; one thread at a time
+    private void evictColdSessions() {
+        if (!evictionLock.tryLock()) {
+            return; // another thread is already making room
+        }
+        try {
+            while (getResidentBytes() > budgetBytes) {
+                Session victim = null;
+                for (Session session : sessions.values()) {
+                    if (session.openCount == 0 && (victim == null || session.lastUsed < victim.lastUsed)) {
+                        victim = session;
+                    }
+                }
+                if (victim == null || !evict(victim)) {
+                    return; // everything left is in use, or could not be saved
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Moves journaled rows into the snapshot and saves the fingerprints, then forgets the session
+    private boolean evict(Session session) {
+        ReentrantLock stripe = stripeFor(session.userId);
+        stripe.lock();
+        try {
+            if (session.openCount > 0 || sessions.get(session.userId) != session) {
+                return true; // reopened or replaced meanwhile; look again
+            }
+            try {
+                session.journal.compact();
+                session.journal.close();
+                session.saveFingerprints();
+            } catch (IOException e) {
+                System.err.println("Could not save history for user " + session.userId + "; keeping it in memory: "
+                    + e.getMessage());
+                return false;
+            }
+            sessions.remove(session.userId);
+            evictions.incrementAndGet();
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Everything one user's windows work on; used from the EDT while open
+    public static class Session {
+        private final int userId;
+        private final BudgetSnapshot history;
+        private final BudgetRecordStore records;
+        private final RecordJournal journal;
+        private final RecordFingerprints fingerprints;
+        private final BudgetAggregates aggregates;
+        private final BudgetQueryIndex queryIndex;
+        private final BudgetAnalytics analytics;
+
+        // Written under the user's stripe lock
+        private volatile int openCount;
+        private volatile long lastUsed;
+
+        Session(int userId, BudgetSnapshot history, BudgetRecordStore records, RecordJournal journal,
+                RecordFingerprints fingerprints) {
+            this.userId = userId;
+            this.history = history;
+            this.records = records;
+            this.journal = journal;
+            this.fingerprints = fingerprints;
+            this.aggregates = new BudgetAggregates();
+            this.aggregates.rebuild(records);
+            this.queryIndex = new BudgetQueryIndex(records);
+            this.analytics = new BudgetAnalytics(records, queryIndex);
+        }
+
+        public long estimateBytes() {
+            return records.estimateBytes() + (long) records.size() * INDEX_BYTES_PER_ROW + fingerprints.estimateBytes();
+        }
+
+        // Saves the fingerprint table next to the snapshot so the next load skips rebuilding it
+        public void saveFingerprints() throws IOException {
+            fingerprints.save(RecordFingerprints.fileFor(history), records.size());
+        }
+
+        public int getUserId() { return userId; }
+        public BudgetSnapshot getHistory() { return history; }
+        public BudgetRecordStore getRecords() { return records; }
+        public RecordJournal getJournal() { return journal; }
+        public RecordFingerprints getFingerprints() { return fingerprints; }
+        public BudgetAggregates getAggregates() { return aggregates; }
+        public BudgetQueryIndex getQueryIndex() { return queryIndex; }
+        public BudgetAnalytics getAnalytics() { return analytics; }
+    }
+}
@@ -0,0 +1,135 @@
+package budgetplannerapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Every amount goes through all three overloads: byte ranges (the importer), char
+// ranges and CharSequences (text fields). Ranges sit inside padding to catch reads
+// outside them.
+class AmountParserTest {
+    private static final int RANDOM_INPUTS = 3_000_000;
+
+    private static double parseBytes(String text) {
+        byte[] padded = ("9," + text + ",9").getBytes(StandardCharsets.ISO_8859_1);
+        return AmountParser.parse(padded, 2, padded.length - 2);
+    }
+
+    private static double parseChars(String text) {
+        char[] padded = ("9," + text + ",9").toCharArray();
+        return AmountParser.parse(padded, 2, padded.length - 2);
+    }
+
+    private static void assertParsesAs(double expected, String text) {
+        long bits = Double.doubleToRawLongBits(expected);
+        assertEquals(bits, Double.doubleToRawLongBits(parseBytes(text)), () -> "bytes: " + text);
+        assertEquals(bits, Double.doubleToRawLongBits(parseChars(text)), () -> "chars: " + text);
+        assertEquals(bits, Double.doubleToRawLongBits(AmountParser.parse(new StringBuilder(text))), () -> "text: " + text);
+    }
+
+    private static void assertRejected(String text) {
+        assertThrows(NumberFormatException.class, () -> parseBytes(text), () -> "bytes: " + text);
+        assertThrows(NumberFormatException.class, () -> parseChars(text), () -> "chars: " + text);
+        assertThrows(NumberFormatException.class, () -> AmountParser.parse(text), () -> "text: " + text);
+    }
+
+    @Test
+    void matchesDoubleParseDoubleBitForBit() {
+        Random random = new Random(20240301);
+        StringBuilder plain = new StringBuilder();
+        for (int i = 0; i < RANDOM_INPUTS; i++) {
+            plain.setLength(0);
+            if (random.nextInt(4) == 0) {
+                plain.append('-');
+            }
+            int digits = 1 + random.nextInt(random.nextInt(8) == 0 ? 25 : 12);
+            int point = random.nextInt(digits + 2) - 1; // -1: no decimal point
+            for (int d = 0; d < digits; d++) {
+                if (d == point) {
+                    plain.append('.');
+                }
+                plain.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextInt(16) == 0) {
+                plain.append(random.nextBoolean() ? 'e' : 'E').append(random.nextInt(40) - 20);
+            }
+            String text = plain.toString();
+            double expected = Double.parseDouble(text);
+            switch (i % 3) {
+                case 0:
+                    assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(parseBytes(text)), text);
+                    break;
+                case 1:
+                    assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(parseChars(text)), text);
+                    break;
+                default:
+                    assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(AmountParser.parse(text)), text);
+                    break;
+            }
+        }
+    }
+
+    @Test
+    void acceptsTheWaysPeopleTypeAmounts() {
+        assertParsesAs(1200, "1200");
+        assertParsesAs(-1234.5, "-$1,234.50");
+        assertParsesAs(-0.99, "$-0.99");
+        assertParsesAs(0.5, ".5");
+        assertParsesAs(5, "5.");
+        assertParsesAs(12, "  12\t");
+        assertParsesAs(1_234_567.891, "+1,234,567.891");
+        assertParsesAs(-0.0, "-0");
+        assertParsesAs(1000, "1e3");
+        assertParsesAs(0.123456789012345678, "0.123456789012345678");
+    }
+
+    @Test
+    void rejectsWhatDoubleParseDoubleWouldAlsoTake() {
+        assertRejected("NaN");
+        assertRejected("Infinity");
+        assertRejected("-Infinity");
+        assertRejected("1.5d");
+        assertRejected("2f");
+        assertRejected("10D");
+        assertRejected("0x1p3");
+    }
+
+    @Test
+    void rejectsMalformedAmounts() {
+        assertRejected("");
+        assertRejected("   ");
+        assertRejected("$");
+        assertRejected("-");
+        assertRejected("1..2");
+        assertRejected("--1");
+        assertRejected("e5");
+        assertRejected("1e");
+        assertRejected("1e+");
+        assertRejected("1,23");
+        assertRejected("1234,567");
+        assertRejected(",123");
+        assertRejected("12 34");
+        assertRejected("١٢");
+    }
+
+    @Test
+    void roundsCentsHalfAwayFromZeroOnTheWrittenDigits() {
+        assertEquals(101, AmountParser.parseCents("1.005"));
+        assertEquals(-101, AmountParser.parseCents("-1.005"));
+        assertEquals(100, AmountParser.parseCents("1.00499"));
+        assertEquals(123_457, AmountParser.parseCents("$1,234.565"));
+        assertEquals(100_000, AmountParser.parseCents("1e3"));
+        assertEquals(-25, AmountParser.parseCents("-2.5E-1"));
+        assertThrows(NumberFormatException.class, () -> AmountParser.parseCents("1e30"));
+    }
+
+    @Test
+    void reportsWhereTheProblemIs() {
+        AmountParser.AmountFormatException e =
+            assertThrows(AmountParser.AmountFormatException.class, () -> AmountParser.parse("12x4"));
+        assertEquals(2, e.getPosition());
+        assertEquals("12x4", e.getInput());
+    }
+}
@@ -0,0 +1,121 @@
+package budgetplannerapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The exporter has to write exactly what the old PrintWriter.printf loop wrote,
+// which printed() reproduces.
+class BudgetCsvExporterTest {
+    @TempDir
+    Path dir;
+
+    private static BudgetRecordStore sampleStore() {
+        BudgetRecordStore store = new BudgetRecordStore();
+        store.appendCents("2024-03-15", 250_000, 12_345, 80_000, 999, 1, 0);
+        // Savings and amounts below zero, including ones that round to -0.00 digits
+        store.appendCents("2024-03-16", -1, -99, -100, -12_345, 0, 5);
+        store.appendCents("1999-12-31", 0, 0, 0, 0, 0, 0);
+        // Entered as dollars: Money rounds half away from zero before anything is printed
+        store.append("2024-03-17", 1.005, 0.005, -0.005, 2.675, 1.115, 10.125);
+        store.append("2024-03-18", 1234567.895, 0.015, 0.025, 0.035, 0.045, 99.995);
+        store.appendCents("2024-03-19", Money.MAX_CENTS, 0, 0, 0, 0, 0);
+        // Irregular dates are written as they were typed
+        store.appendCents("", 100, 1, 1, 1, 1, 1);
+        store.appendCents("March 2024", 100, 1, 1, 1, 1, 1);
+        store.appendCents("2024-3-5", 100, 1, 1, 1, 1, 1);
+        store.appendCents("sometime, after rent", 100, 1, 1, 1, 1, 1);
+        store.appendCents("2024年3月", 100, 1, 1, 1, 1, 1);
+        return store;
+    }
+
+    private File printed(BudgetRecordStore store) throws IOException {
+        File file = dir.resolve("printf.csv").toFile();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println(BudgetCsvExporter.HEADER);
+            for (int row = 0; row < store.size(); row++) {
+                writer.printf("%s,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+                    store.getDate(row), store.getIncome(row), store.getFood(row), store.getRent(row),
+                    store.getTravel(row), store.getStudy(row), store.getEntertainment(row),
+                    store.getTotalExpenses(row), store.getSavings(row));
+            }
+        }
+        return file;
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void writesTheSameBytesAsPrintf() throws IOException {
+        BudgetRecordStore store = sampleStore();
+        File exported = dir.resolve("budget.csv").toFile();
+        BudgetCsvExporter.ExportResult result = new BudgetCsvExporter().export(store, store.size(), exported, null);
+
+        assertArrayEquals(Files.readAllBytes(printed(store).toPath()), Files.readAllBytes(exported.toPath()));
+        assertEquals(store.size(), result.getRows());
+        assertEquals(exported.length(), result.getBytes());
+    }
+
+    @Test
+    void writesTheSameBytesAsPrintfInALocaleWithADecimalComma() throws IOException {
+        Locale previous = Locale.getDefault();
+        Locale previousFormat = Locale.getDefault(Locale.Category.FORMAT);
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            BudgetRecordStore store = sampleStore();
+            File exported = dir.resolve("budget.csv").toFile();
+            new BudgetCsvExporter().export(store, store.size(), exported, null);
+            assertArrayEquals(Files.readAllBytes(printed(store).toPath()), Files.readAllBytes(exported.toPath()));
+        } finally {
+            Locale.setDefault(previous);
+            Locale.setDefault(Locale.Category.FORMAT, previousFormat);
+        }
+    }
+
+    @Test
+    void gzipsTheSameBytes() throws IOException {
+        BudgetRecordStore store = sampleStore();
+        File exported = dir.resolve("budget.csv.gz").toFile();
+        BudgetCsvExporter.ExportResult result = new BudgetCsvExporter(true).export(store, store.size(), exported, null);
+
+        assertArrayEquals(Files.readAllBytes(printed(store).toPath()), gunzip(exported));
+        assertEquals(exported.length(), result.getBytes(), "bytes on disk, after compression");
+    }
+
+    @Test
+    void writesOnlyTheHeaderForNoRows() throws IOException {
+        File exported = dir.resolve("empty.csv").toFile();
+        new BudgetCsvExporter().export(new BudgetRecordStore(), 0, exported, null);
+        assertEquals(BudgetCsvExporter.HEADER + System.lineSeparator(), Files.readString(exported.toPath()));
+    }
+
+    @Test
+    void cancellingLeavesTheOldFileAlone() throws IOException {
+        BudgetRecordStore store = new BudgetRecordStore();
+        for (int i = 0; i < 100_000; i++) {
+            store.appendCents("2024-03-15", i, 1, 2, 3, 4, 5);
+        }
+        File exported = dir.resolve("budget.csv").toFile();
+        Files.writeString(exported.toPath(), "previous export");
+
+        BudgetCsvExporter exporter = new BudgetCsvExporter();
+        assertThrows(CancellationException.class,
+            () -> exporter.export(store, store.size(), exported, (written, total) -> exporter.cancel()));
+        assertEquals("previous export", Files.readString(exported.toPath()));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count(), "the temp file is deleted");
+        }
+    }
+}
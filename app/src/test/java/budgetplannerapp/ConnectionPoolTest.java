@@ -0,0 +1,226 @@
+package budgetplannerapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Runs the pool against an in-memory H2 database. The factory keeps every physical
+// connection it opens, so tests can break one behind the pool's back.
+class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final List<Connection> physical = new CopyOnWriteArrayList<>();
+    private String url;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Budget (id INT PRIMARY KEY, amount DECIMAL(12, 2))");
+            stmt.execute("INSERT INTO Budget VALUES (1, 10.50), (2, 20.25)");
+        }
+    }
+
+    @AfterEach
+    void closePool() throws SQLException {
+        if (pool != null) {
+            pool.close();
+        }
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+    }
+
+    private ConnectionPool newPool(int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis) {
+        pool = new ConnectionPool(() -> {
+            Connection conn = DriverManager.getConnection(url);
+            physical.add(conn);
+            return conn;
+        }, maxSize, borrowTimeoutMillis, idleTimeoutMillis, 8);
+        return pool;
+    }
+
+    @Test
+    void borrowTimesOutWhenEveryConnectionIsInUse() throws SQLException {
+        newPool(1, 100, 60_000);
+        try (Connection held = pool.borrow()) {
+            long start = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+            assertTrue(System.nanoTime() - start >= 90_000_000L, "gave up before the timeout");
+        }
+        assertEquals(1, pool.getStats().getTimeouts());
+
+        // The permit came back with the connection, so the next borrow succeeds
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+        }
+    }
+
+    @Test
+    void reusesReturnedConnections() throws SQLException {
+        newPool(2, 1000, 60_000);
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.borrow()) {
+                assertEquals(0, pool.getStats().getIdle());
+            }
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(5, stats.getBorrows());
+        assertEquals(1, stats.getCreated());
+        assertEquals(1, stats.getIdle());
+        assertEquals(0, stats.getActive());
+    }
+
+    @Test
+    void validatesIdleConnectionsOnBorrow() throws Exception {
+        newPool(1, 1000, 60_000);
+        pool.borrow().close();
+        physical.get(0).close();
+
+        // Past the grace period, borrow() checks isValid() and opens a new one instead
+        Thread.sleep(700);
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Budget");
+             ResultSet rs = stmt.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(2, stats.getCreated());
+        assertEquals(1, stats.getDiscarded());
+    }
+
+    @Test
+    void evictsConnectionsIdlePastTheTimeout() throws Exception {
+        newPool(2, 1000, 50);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        first.close();
+        Thread.sleep(100);
+        second.close();
+
+        pool.evictIdle();
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.getIdle(), "only the connection returned before the cutoff goes");
+        assertEquals(1, stats.getDiscarded());
+        assertTrue(physical.get(0).isClosed());
+        assertFalse(physical.get(1).isClosed());
+    }
+
+    @Test
+    void servesRepeatedStatementsFromTheCache() throws SQLException {
+        newPool(1, 1000, 60_000);
+        String sql = "SELECT amount FROM Budget WHERE id = ?";
+        PreparedStatement first;
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                first = stmt.unwrap(PreparedStatement.class);
+                stmt.setInt(1, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(new BigDecimal("10.50"), rs.getBigDecimal(1));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                assertSame(first, stmt.unwrap(PreparedStatement.class));
+                // close() cleared the parameters of the earlier use
+                assertThrows(SQLException.class, stmt::executeQuery);
+            }
+        }
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            assertSame(first, stmt.unwrap(PreparedStatement.class), "the cache survives a return to the pool");
+            stmt.setInt(1, 2);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+            }
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.getStatementMisses());
+        assertEquals(2, stats.getStatementHits());
+    }
+
+    @Test
+    void discardsConnectionsAfterAConnectionErrorFromAStatement() throws SQLException {
+        FailingLink link = new FailingLink();
+        pool = new ConnectionPool(() -> link.wrap(DriverManager.getConnection(url)), 1, 1000, 60_000, 8);
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Budget")) {
+            link.down = true;
+            SQLException e = assertThrows(SQLException.class, stmt::executeQuery);
+            assertEquals("08S01", e.getSQLState());
+        }
+        link.down = false;
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.getIdle());
+        assertEquals(1, stats.getDiscarded());
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM Budget");
+             ResultSet rs = stmt.executeQuery()) {
+            assertTrue(rs.next());
+        }
+        assertEquals(2, pool.getStats().getCreated());
+    }
+
+    @Test
+    void keepsConnectionsAfterOtherStatementErrors() throws SQLException {
+        newPool(1, 1000, 60_000);
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO Budget VALUES (?, 1)")) {
+            stmt.setInt(1, 1);
+            assertThrows(SQLIntegrityConstraintViolationException.class, stmt::executeUpdate);
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.getIdle());
+        assertEquals(0, stats.getDiscarded());
+    }
+
+    // Makes every statement of the connections it wraps fail with SQLState 08S01
+    // (communication link failure) while down is set
+    private static class FailingLink {
+        volatile boolean down;
+
+        Connection wrap(Connection conn) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(conn, method, args);
+                    if (result instanceof PreparedStatement) {
+                        return wrap((PreparedStatement) result);
+                    }
+                    return result;
+                });
+        }
+
+        private PreparedStatement wrap(PreparedStatement stmt) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    if (down && method.getName().startsWith("execute")) {
+                        throw new SQLException("Communication link failure", "08S01");
+                    }
+                    return invoke(stmt, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
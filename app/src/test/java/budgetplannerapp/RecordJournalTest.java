@@ -0,0 +1,207 @@
+package budgetplannerapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A crash is simulated by copying the snapshot and journal of an open journal,
+// after a commit, and opening the copies: close() would have compacted them.
+class RecordJournalTest {
+    private static final String LONG_DATE = "sometime in the second week of March, after rent was paid — 家賃の後";
+
+    @TempDir
+    Path dir;
+
+    private BudgetSnapshot snapshot;
+    private BudgetRecordStore store;
+    private RecordJournal journal;
+
+    @BeforeEach
+    void openJournal() throws IOException {
+        snapshot = new BudgetSnapshot(dir.resolve("history.snapshot").toFile());
+        store = snapshot.load();
+        journal = RecordJournal.open(snapshot, store);
+    }
+
+    @AfterEach
+    void closeJournal() throws IOException {
+        journal.close();
+    }
+
+    private void append(String date, long income) {
+        int row = store.appendCents(date, income, 100, 200, 300, 400, 500);
+        journal.append(row, row + 1);
+    }
+
+    private void appendRows(int count) {
+        for (int i = 0; i < count; i++) {
+            append("2024-03-" + (10 + i % 10), 1_000 + i);
+        }
+    }
+
+    // Copies the files as they are on disk now, as if the process died here
+    private BudgetSnapshot crashCopy(String name) throws IOException {
+        Path target = Files.createDirectory(dir.resolve(name));
+        Path snapshotFile = snapshot.getFile().toPath();
+        if (Files.exists(snapshotFile)) {
+            Files.copy(snapshotFile, target.resolve("history.snapshot"));
+        }
+        Files.copy(journal.getFile().toPath(), target.resolve("history.snapshot.journal"),
+            StandardCopyOption.REPLACE_EXISTING);
+        return new BudgetSnapshot(target.resolve("history.snapshot").toFile());
+    }
+
+    @Test
+    void replaysCommittedRowsExactly() throws IOException {
+        append("2024-03-15", 250_000);
+        append(LONG_DATE, -1);
+        append("", 0);
+        journal.commit();
+
+        BudgetSnapshot copy = crashCopy("crash");
+        BudgetRecordStore recovered = copy.load();
+        RecordJournal replayed = RecordJournal.open(copy, recovered);
+        try {
+            assertEquals(3, replayed.getReplayedRows());
+            assertEquals(3, recovered.size());
+            for (int row = 0; row < 3; row++) {
+                assertEquals(store.getDate(row), recovered.getDate(row));
+                for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                    assertEquals(store.getCents(column, row), recovered.getCents(column, row));
+                }
+            }
+            assertEquals(LONG_DATE, recovered.getDate(1));
+            // Opening folds the replayed rows into the snapshot and empties the journal
+            assertEquals(0, replayed.getFile().length());
+            assertEquals(3, copy.getRowsOnDisk());
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test
+    void stopsAtATornTail() throws IOException {
+        append("2024-03-15", 1);
+        append(LONG_DATE, 2);
+        append("2024-03-16", 3);
+        journal.commit();
+
+        BudgetSnapshot copy = crashCopy("torn");
+        File copied = RecordJournal.fileFor(copy);
+        try (RandomAccessFile file = new RandomAccessFile(copied, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+        BudgetRecordStore recovered = copy.load();
+        RecordJournal replayed = RecordJournal.open(copy, recovered);
+        try {
+            assertEquals(2, recovered.size());
+            assertEquals(LONG_DATE, recovered.getDate(1));
+            assertEquals(0, copied.length(), "the torn entry is dropped with the compaction");
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test
+    void stopsAtACorruptEntry() throws IOException {
+        appendRows(3);
+        journal.commit();
+
+        BudgetSnapshot copy = crashCopy("corrupt");
+        try (RandomAccessFile file = new RandomAccessFile(RecordJournal.fileFor(copy), "rw")) {
+            long amountInSecondEntry = RecordJournal.MIN_ENTRY_SIZE + 20;
+            file.seek(amountInSecondEntry);
+            int original = file.read();
+            file.seek(amountInSecondEntry);
+            file.write(original ^ 0x01);
+        }
+        BudgetRecordStore recovered = copy.load();
+        RecordJournal replayed = RecordJournal.open(copy, recovered);
+        try {
+            assertEquals(1, replayed.getReplayedRows(), "nothing after a bad checksum is trusted");
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test
+    void skipsRowsTheSnapshotAlreadyHas() throws IOException {
+        appendRows(2);
+        journal.compact();
+        appendRows(3);
+        journal.commit();
+
+        BudgetSnapshot copy = crashCopy("partial");
+        BudgetRecordStore recovered = copy.load();
+        assertEquals(2, recovered.size());
+        RecordJournal replayed = RecordJournal.open(copy, recovered);
+        try {
+            assertEquals(3, replayed.getReplayedRows());
+            assertEquals(5, recovered.size());
+            assertEquals(store.getCents(BudgetRecordStore.INCOME, 4), recovered.getCents(BudgetRecordStore.INCOME, 4));
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test
+    void stopsAtAGap() throws IOException {
+        appendRows(2);
+        journal.compact();
+        appendRows(3);
+        journal.commit();
+
+        // The journal continues at row 2, but this snapshot is empty
+        BudgetSnapshot copy = crashCopy("gap");
+        Files.delete(copy.getFile().toPath());
+        BudgetRecordStore recovered = copy.load();
+        RecordJournal replayed = RecordJournal.open(copy, recovered);
+        try {
+            assertEquals(0, replayed.getReplayedRows());
+            assertEquals(0, recovered.size());
+        } finally {
+            replayed.close();
+        }
+    }
+
+    @Test
+    void compactsIntoTheSnapshot() throws IOException {
+        appendRows(4);
+        append(LONG_DATE, 5);
+        journal.compact();
+        assertEquals(0, journal.getFile().length());
+        assertEquals(5, snapshot.getRowsOnDisk());
+        assertEquals(5, journal.getDurableRows());
+
+        BudgetRecordStore loaded = snapshot.load();
+        assertEquals(5, loaded.size());
+        assertEquals(LONG_DATE, loaded.getDate(4));
+    }
+
+    @Test
+    void compactsOnItsOwnPastTheThreshold() throws IOException {
+        int rows = (int) (RecordJournal.COMPACT_BYTES / RecordJournal.MIN_ENTRY_SIZE) + 1;
+        appendRows(rows);
+        journal.commit();
+        assertEquals(0, journal.getFile().length());
+        assertEquals(rows, snapshot.getRowsOnDisk());
+    }
+
+    @Test
+    void closeLeavesAnEmptyJournal() throws IOException {
+        appendRows(3);
+        journal.close();
+        assertEquals(0, journal.getFile().length());
+        assertEquals(3, snapshot.load().size());
+        assertThrows(IllegalStateException.class, () -> journal.append(3, 4));
+    }
+}
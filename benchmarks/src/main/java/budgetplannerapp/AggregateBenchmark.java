@@ -0,0 +1,38 @@
+package budgetplannerapp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Dashboard totals: every row folded in with add() on the calling thread, the way
+// single saves do it, against the fork/join compute() behind rebuild() and imports
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AggregateBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        store = BenchmarkData.store(rows);
+    }
+
+    @Benchmark
+    public BudgetAggregates sequentialAdd() {
+        BudgetAggregates aggregates = new BudgetAggregates();
+        for (int row = 0; row < rows; row++) {
+            aggregates.add(store, row);
+        }
+        return aggregates;
+    }
+
+    @Benchmark
+    public BudgetAggregates parallelCompute() {
+        return BudgetAggregates.compute(store, 0, store.size());
+    }
+}
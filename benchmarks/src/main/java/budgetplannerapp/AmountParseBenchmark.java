@@ -0,0 +1,74 @@
+package budgetplannerapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Amount fields of the import corpus: String + Double.parseDouble, the way the old
+// reader and the Add Budget form parsed them, against AmountParser on the raw bytes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AmountParseBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    byte[] text;
+    int[] fieldStarts;
+    int[] fieldEnds;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        double[][] amounts = BenchmarkData.amounts(rows);
+        StringBuilder corpus = new StringBuilder(rows * 48);
+        int fields = rows * BudgetRecordStore.AMOUNT_COLUMNS;
+        fieldStarts = new int[fields];
+        fieldEnds = new int[fields];
+        int field = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                // Typed amounts: whole dollars or dollars and cents, never float noise
+                long cents = Math.round(amounts[column][row] * 100);
+                fieldStarts[field] = corpus.length();
+                corpus.append(cents / 100);
+                if (cents % 100 != 0) {
+                    corpus.append('.').append(cents % 100 < 10 ? "0" : "").append(cents % 100);
+                }
+                fieldEnds[field++] = corpus.length();
+                corpus.append(',');
+            }
+        }
+        text = corpus.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public double doubleParseDouble() {
+        double sum = 0;
+        for (int i = 0; i < fieldStarts.length; i++) {
+            String field = new String(text, fieldStarts[i], fieldEnds[i] - fieldStarts[i], StandardCharsets.ISO_8859_1);
+            sum += Double.parseDouble(field.trim());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double amountParser() {
+        double sum = 0;
+        for (int i = 0; i < fieldStarts.length; i++) {
+            sum += AmountParser.parse(text, fieldStarts[i], fieldEnds[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long amountParserCents() {
+        long sum = 0;
+        for (int i = 0; i < fieldStarts.length; i++) {
+            sum += AmountParser.parseCents(text, fieldStarts[i], fieldEnds[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,74 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Benchmark Data
+// Deterministic budget rows shared by the benchmarks. Amounts look like what people
+// type (whole dollars or cents), dates cycle through two years of days.
+final class BenchmarkData {
+    static final long SEED = 20240101L;
+    static final int DAYS = 730;
+    static final int FIRST_DAY = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+
+    private BenchmarkData() {}
+
+    static String[] datePool() {
+        String[] dates = new String[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            dates[i] = LocalDate.ofEpochDay(FIRST_DAY + i).toString();
+        }
+        return dates;
+    }
+
+    // rows x 6 amounts, column-major like BudgetRecordStore
+    static double[][] amounts(int rows) {
+        Random random = new Random(SEED);
+        double[][] columns = new double[BudgetRecordStore.AMOUNT_COLUMNS][rows];
+        for (int row = 0; row < rows; row++) {
+            columns[BudgetRecordStore.INCOME][row] = 2000 + random.nextInt(400_000) / 100.0;
+            for (int column = 1; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                columns[column][row] = random.nextBoolean() ? random.nextInt(800) : random.nextInt(80_000) / 100.0;
+            }
+        }
+        return columns;
+    }
+
+    static BudgetRecordStore store(int rows) {
+        double[][] amounts = amounts(rows);
+        BudgetRecordStore store = new BudgetRecordStore();
+        for (int row = 0; row < rows; row++) {
+            store.append(FIRST_DAY + row % DAYS, amounts[0][row], amounts[1][row], amounts[2][row],
+                amounts[3][row], amounts[4][row], amounts[5][row]);
+        }
+        return store;
+    }
+
+    // The text format importFromFile reads: date,income,food,rent,travel,study,entertainment
+    static File textFile(int rows) throws IOException {
+        File file = File.createTempFile("budget-bench-" + rows + "-", ".txt");
+        file.deleteOnExit();
+        String[] dates = datePool();
+        double[][] amounts = amounts(rows);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder line = new StringBuilder(96);
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                line.append(dates[row % DAYS]);
+                for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                    line.append(',').append(Money.format(Money.toCents(amounts[column][row])));
+                }
+                writer.append(line).append('\n');
+            }
+        }
+        return file;
+    }
+
+    static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("budget-bench-", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,46 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Duplicate detection: building RecordFingerprints for the history, re-importing
+// rows that are all already there, and opening the persisted set instead of
+// rebuilding it. The persisted file is written in setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DedupBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+    RecordFingerprints fingerprints;
+    File file;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        store = BenchmarkData.store(rows);
+        fingerprints = RecordFingerprints.of(store);
+        file = BenchmarkData.tempFile(".fingerprints");
+        fingerprints.save(file, store.size());
+    }
+
+    @Benchmark
+    public long rebuild() {
+        return RecordFingerprints.of(store).size();
+    }
+
+    @Benchmark
+    public int reimport() {
+        return fingerprints.findNew(store).getDuplicates();
+    }
+
+    @Benchmark
+    public long openPersisted() {
+        return RecordFingerprints.open(file, store).size();
+    }
+}
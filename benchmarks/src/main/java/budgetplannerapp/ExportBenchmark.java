@@ -0,0 +1,51 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// CSV export: the PrintWriter.printf loop exportToCSV used to run, against
+// BudgetCsvExporter writing the same bytes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExportBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+    File file;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        store = BenchmarkData.store(rows);
+        file = BenchmarkData.tempFile(".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long printf() throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println(BudgetCsvExporter.HEADER);
+            for (int row = 0; row < rows; row++) {
+                writer.printf("%s,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+                    store.getDate(row), store.getIncome(row), store.getFood(row), store.getRent(row),
+                    store.getTravel(row), store.getStudy(row), store.getEntertainment(row),
+                    store.getTotalExpenses(row), store.getSavings(row));
+            }
+        }
+        return file.length();
+    }
+
+    @Benchmark
+    public long budgetCsvExporter() throws IOException {
+        return new BudgetCsvExporter().export(store, rows, file, null).getBytes();
+    }
+}
@@ -0,0 +1,81 @@
+package budgetplannerapp;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Saving budgets to Transactions on an in-memory H2 database: one batch per budget
+// with auto-commit (saveBudgetToDatabase), one JDBC batch for everything
+// (BudgetWriteBehind), and multi-row INSERTs (TransactionBulkWriter).
+// Each budget is six rows, so sizes stop at 100k budgets.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JdbcBatchBenchmark {
+    private static final int USER_ID = 1;
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    BudgetRecordStore store;
+    Connection conn;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws SQLException {
+        store = BenchmarkData.store(rows);
+        conn = DriverManager.getConnection("jdbc:h2:mem:budget;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS Transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id INT, category VARCHAR(50), amount DOUBLE, type VARCHAR(20), transaction_date TIMESTAMP)");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE Transactions");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE Transactions");
+        }
+        conn.close();
+    }
+
+    @Benchmark
+    public int batchPerBudget() throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(BudgetWriteBehind.INSERT_SQL)) {
+            for (int row = 0; row < rows; row++) {
+                BudgetWriteBehind.addRows(stmt, USER_ID, store.get(row));
+                stmt.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int singleBatch() throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(BudgetWriteBehind.INSERT_SQL)) {
+            for (int row = 0; row < rows; row++) {
+                BudgetWriteBehind.addRows(stmt, USER_ID, store.get(row));
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public TransactionBulkWriter.BulkResult multiRowInsert() throws SQLException {
+        return new TransactionBulkWriter().insertAll(conn, USER_ID, store);
+    }
+}
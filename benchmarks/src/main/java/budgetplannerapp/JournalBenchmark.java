@@ -0,0 +1,82 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Single-row saves: syncing the history snapshot after every row (one forced block
+// each, as saveHistory used to) against RecordJournal appends with group commit.
+// Scores are saved rows per second; each invocation saves SAVES rows and ends with
+// every one of them forced to disk.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JournalBenchmark {
+    static final int SAVES = 1000;
+
+    double[][] amounts;
+    File dir;
+    BudgetSnapshot snapshot;
+    BudgetRecordStore store;
+    RecordJournal journal;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        amounts = BenchmarkData.amounts(SAVES);
+        dir = BenchmarkData.tempFile(".dir");
+        dir.delete();
+    }
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        deleteFiles();
+        snapshot = new BudgetSnapshot(new File(dir, "history.snapshot"));
+        store = snapshot.load();
+        journal = RecordJournal.open(snapshot, store);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        journal.close();
+        deleteFiles();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAVES)
+    public int snapshotPerRow() throws IOException {
+        for (int i = 0; i < SAVES; i++) {
+            append();
+            snapshot.sync(store, store.size());
+        }
+        return store.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAVES)
+    public int journalGroupCommit() throws IOException {
+        for (int i = 0; i < SAVES; i++) {
+            int row = append();
+            journal.append(row, row + 1);
+        }
+        journal.commit();
+        return store.size();
+    }
+
+    private int append() {
+        int sample = store.size() % SAVES;
+        return store.append(BenchmarkData.FIRST_DAY + sample % BenchmarkData.DAYS, amounts[0][sample], amounts[1][sample],
+            amounts[2][sample], amounts[3][sample], amounts[4][sample], amounts[5][sample]);
+    }
+
+    private void deleteFiles() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
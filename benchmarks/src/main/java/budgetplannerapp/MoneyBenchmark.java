@@ -0,0 +1,79 @@
+package budgetplannerapp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Money arithmetic: one pass of per-category statistics (count, sum, min, max,
+// Welford mean/variance) over every row of a BudgetRecordStore, the dashboard's
+// overall rollup. The old path is double stats fed through the store's dollar
+// accessors; the current one is BudgetAggregates.Rollup fed long cents, whose sums
+// go through Money.add once per value.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MoneyBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        store = BenchmarkData.store(rows);
+    }
+
+    @Benchmark
+    public DoubleStats[] doubleRollup() {
+        DoubleStats[] categories = new DoubleStats[BudgetAggregates.CATEGORIES];
+        for (int category = 0; category < categories.length; category++) {
+            categories[category] = new DoubleStats();
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                categories[column].add(store.getAmount(column, row));
+            }
+            categories[BudgetAggregates.TOTAL_EXPENSES].add(store.getTotalExpenses(row));
+            categories[BudgetAggregates.SAVINGS].add(store.getSavings(row));
+        }
+        return categories;
+    }
+
+    // Fed the way BudgetAggregates.add() feeds it
+    @Benchmark
+    public BudgetAggregates.Rollup centRollup() {
+        BudgetAggregates.Rollup rollup = new BudgetAggregates.Rollup();
+        long[] values = new long[BudgetAggregates.CATEGORIES];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < BudgetRecordStore.AMOUNT_COLUMNS; column++) {
+                values[column] = store.getCents(column, row);
+            }
+            values[BudgetAggregates.TOTAL_EXPENSES] = store.getTotalExpensesCents(row);
+            values[BudgetAggregates.SAVINGS] = store.getSavingsCents(row);
+            rollup.add(values);
+        }
+        return rollup;
+    }
+
+    // BudgetAggregates.Stats as it was before amounts became cents
+    public static class DoubleStats {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean;
+        double m2;
+
+        void add(double value) {
+            count++;
+            sum += value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+    }
+}
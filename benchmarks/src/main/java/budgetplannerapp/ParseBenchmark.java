@@ -0,0 +1,63 @@
+package budgetplannerapp;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Import parsing: the BufferedReader + split loop importBudgetFromFile used to run,
+// against BudgetImporter on the same file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    File file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = BenchmarkData.textFile(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<BudgetRecord> splitLines() throws IOException {
+        List<BudgetRecord> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length >= 7) {
+                    try {
+                        records.add(new BudgetRecord(parts[0].trim(),
+                            Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                            Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim()),
+                            Double.parseDouble(parts[5].trim()), Double.parseDouble(parts[6].trim())));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Skipping invalid line: " + line);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    @Benchmark
+    public BudgetImporter.ImportResult budgetImporter() throws IOException {
+        return new BudgetImporter().importFile(file, null);
+    }
+}
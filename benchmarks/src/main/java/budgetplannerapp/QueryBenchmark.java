@@ -0,0 +1,62 @@
+package budgetplannerapp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// History queries: scanning every row against BudgetQueryIndex, for a quarter and
+// for an amount threshold. Index builds happen in setup, not in the measurement.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+    BudgetQueryIndex index;
+    BudgetQuery quarter;
+    BudgetQuery threshold;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        store = BenchmarkData.store(rows);
+        index = new BudgetQueryIndex(store);
+        quarter = BudgetQuery.quarter(2023, 3);
+        threshold = BudgetQuery.all().atLeast(BudgetRecordStore.ENTERTAINMENT, 790);
+        index.count(quarter);
+        index.count(threshold);
+    }
+
+    @Benchmark
+    public int scanQuarter() {
+        return scan(quarter);
+    }
+
+    @Benchmark
+    public int indexedQuarter() {
+        return index.count(quarter);
+    }
+
+    @Benchmark
+    public int scanThreshold() {
+        return scan(threshold);
+    }
+
+    @Benchmark
+    public int indexedThreshold() {
+        return index.count(threshold);
+    }
+
+    private int scan(BudgetQuery query) {
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (query.matches(store, row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
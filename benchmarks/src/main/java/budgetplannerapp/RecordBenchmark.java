@@ -0,0 +1,48 @@
+package budgetplannerapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Building the in-memory history: one BudgetRecord object per row against
+// appending to the columnar BudgetRecordStore
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecordBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    String[] dates;
+    double[][] amounts;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        dates = BenchmarkData.datePool();
+        amounts = BenchmarkData.amounts(rows);
+    }
+
+    @Benchmark
+    public List<BudgetRecord> budgetRecordObjects() {
+        List<BudgetRecord> records = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            records.add(new BudgetRecord(dates[row % BenchmarkData.DAYS], amounts[0][row], amounts[1][row],
+                amounts[2][row], amounts[3][row], amounts[4][row], amounts[5][row]));
+        }
+        return records;
+    }
+
+    @Benchmark
+    public BudgetRecordStore recordStore() {
+        BudgetRecordStore store = new BudgetRecordStore();
+        for (int row = 0; row < rows; row++) {
+            store.append(dates[row % BenchmarkData.DAYS], amounts[0][row], amounts[1][row],
+                amounts[2][row], amounts[3][row], amounts[4][row], amounts[5][row]);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,64 @@
+package budgetplannerapp;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// A user's monthly totals for two years from Transactions on in-memory H2: running
+// the GROUP BY loader every time against reading them from MonthlyRollupCache.
+// Each budget is six rows, so sizes stop at 100k budgets.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RollupCacheBenchmark {
+    private static final int USER_ID = 1;
+    private static final String URL = "jdbc:h2:mem:rollups;DB_CLOSE_DELAY=-1";
+    private static final YearMonth FIRST = YearMonth.of(2023, 1);
+    private static final YearMonth LAST = YearMonth.of(2024, 12);
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    Connection conn;
+    MonthlyRollupCache cache;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection(URL, "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id INT, "
+                + "category VARCHAR(50), amount DOUBLE, type VARCHAR(20), transaction_date TIMESTAMP)");
+            stmt.execute("CREATE INDEX transactions_user_date ON Transactions (user_id, transaction_date)");
+        }
+        new TransactionBulkWriter().insertAll(conn, USER_ID, BenchmarkData.store(rows));
+        cache = newCache();
+        cache.getRange(USER_ID, FIRST, LAST);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE Transactions");
+        }
+        conn.close();
+    }
+
+    @Benchmark
+    public MonthlyRollupCache.Rollup[] groupByQuery() throws SQLException {
+        return newCache().getRange(USER_ID, FIRST, LAST);
+    }
+
+    @Benchmark
+    public MonthlyRollupCache.Rollup[] cached() throws SQLException {
+        return cache.getRange(USER_ID, FIRST, LAST);
+    }
+
+    private static MonthlyRollupCache newCache() {
+        return new MonthlyRollupCache(() -> DriverManager.getConnection(URL, "sa", ""),
+            MonthlyRollupCache.MAX_ENTRIES, MonthlyRollupCache.TTL_NANOS);
+    }
+}
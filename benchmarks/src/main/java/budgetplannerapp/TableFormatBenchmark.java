@@ -0,0 +1,60 @@
+package budgetplannerapp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Records table formatting: the old refreshTableData built a "$%.2f" string for
+// every cell up front; BudgetTableModel formats cells as they are rendered
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class TableFormatBenchmark {
+    // The table shows about this many rows at once
+    private static final int VISIBLE_ROWS = 40;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int rows;
+
+    BudgetRecordStore store;
+    BudgetTableModel model;
+    BudgetTableModel.CurrencyRenderer renderer;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        store = BenchmarkData.store(rows);
+        model = new BudgetTableModel(store);
+        renderer = new BudgetTableModel.CurrencyRenderer();
+    }
+
+    @Benchmark
+    public void formatAllRows(Blackhole sink) {
+        for (int row = 0; row < rows; row++) {
+            BudgetRecord record = store.get(row);
+            sink.consume(record.getDate());
+            sink.consume(String.format("$%.2f", record.getIncome()));
+            sink.consume(String.format("$%.2f", record.getFood()));
+            sink.consume(String.format("$%.2f", record.getRent()));
+            sink.consume(String.format("$%.2f", record.getTravel()));
+            sink.consume(String.format("$%.2f", record.getStudy()));
+            sink.consume(String.format("$%.2f", record.getEntertainment()));
+            sink.consume(String.format("$%.2f", record.getTotalExpenses()));
+            sink.consume(String.format("$%.2f", record.getSavings()));
+        }
+    }
+
+    @Benchmark
+    public void syncAndRenderVisibleRows(Blackhole sink) {
+        model.syncWithStore();
+        int first = Math.max(0, model.getRowCount() - VISIBLE_ROWS);
+        for (int row = first; row < model.getRowCount(); row++) {
+            sink.consume(model.getValueAt(row, 0));
+            for (int column = 1; column < model.getColumnCount(); column++) {
+                sink.consume(renderer.format((Double) model.getValueAt(row, column)));
+            }
+        }
+    }
+}